@@ -4,9 +4,15 @@ import java.util.*;
 
 public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
 
+    // Sets of at least this size are searched through EytzingerIndex
+    static final int INDEX_THRESHOLD = 1 << 12;
+
     private final List<T> arrayList;
     private final Comparator<? super T> comparator;
     private final boolean naturalOrder;
+    // Subsets share index of the whole set, offset is position of their first element there
+    private final EytzingerIndex<T> searchIndex;
+    private final int offset;
 
 
     public ArraySet() {
@@ -29,7 +35,7 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
 
     enum InitType {
         ORDINARY,
-        FROM_SUBSET,
+        // Collection is a sorted list without duplicates, which isn't referenced by anyone else
         FROM_SORTED,
     }
 
@@ -45,21 +51,135 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
 
         if (collection == null) {
             arrayList = Collections.emptyList();
+        } else if (initType == InitType.FROM_SORTED) {
+            arrayList = (List<T>) collection;
         } else {
-            if (initType == InitType.FROM_SUBSET) {
-                arrayList = (List<T>) collection;
+            arrayList = sortedUnique(collection.toArray(), this.comparator);
+        }
+        searchIndex = arrayList.size() >= INDEX_THRESHOLD ? new EytzingerIndex<>(arrayList, this.comparator) : null;
+        offset = 0;
+    }
+
+    private ArraySet(ArraySet<T> parent, int start, int end) {
+        naturalOrder = parent.naturalOrder;
+        comparator = parent.comparator;
+        arrayList = parent.arrayList.subList(start, end);
+        searchIndex = parent.searchIndex;
+        offset = parent.offset + start;
+    }
+
+    /**
+     * Sorts array unless it's already sorted and removes duplicates in place.
+     * Checking order is linear, so sorted input (e.g. another sorted set) doesn't pay for sorting.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> sortedUnique(Object[] array, Comparator<? super T> comparator) {
+        if (array.length == 0) {
+            return Collections.emptyList();
+        }
+        // Rejects null or incomparable element like TreeSet does, even if there is only one
+        comparator.compare((T) array[0], (T) array[0]);
+        boolean sorted = true;
+        for (int i = 1; i < array.length && sorted; i++) {
+            sorted = comparator.compare((T) array[i - 1], (T) array[i]) <= 0;
+        }
+        if (!sorted) {
+            Arrays.parallelSort((T[]) array, comparator);
+        }
+        int size = 1;
+        for (int i = 1; i < array.length; i++) {
+            if (comparator.compare((T) array[size - 1], (T) array[i]) != 0) {
+                array[size++] = array[i];
+            }
+        }
+        return Arrays.asList((T[]) (size == array.length ? array : Arrays.copyOf(array, size)));
+    }
+
+    /**
+     * Returns set of elements contained in this set or {@code other} in O(n + m)
+     * if both sets have the same comparator.
+     */
+    public ArraySet<T> union(ArraySet<T> other) {
+        if (!sameOrder(other)) {
+            List<T> elements = new ArrayList<>(this);
+            elements.addAll(other);
+            return new ArraySet<>(elements, comparator());
+        }
+        return merge(other, true, true, true);
+    }
+
+    /**
+     * Returns set of elements contained in both this set and {@code other} in O(n + m)
+     * if both sets have the same comparator.
+     */
+    public ArraySet<T> intersection(ArraySet<T> other) {
+        if (!sameOrder(other)) {
+            return new ArraySet<>(stream().filter(other::contains).toList(), comparator());
+        }
+        return merge(other, false, true, false);
+    }
+
+    /**
+     * Returns set of elements contained in this set but not in {@code other} in O(n + m)
+     * if both sets have the same comparator.
+     */
+    public ArraySet<T> difference(ArraySet<T> other) {
+        if (!sameOrder(other)) {
+            return new ArraySet<>(stream().filter(element -> !other.contains(element)).toList(), comparator());
+        }
+        return merge(other, true, false, false);
+    }
+
+    private boolean sameOrder(ArraySet<T> other) {
+        return Objects.equals(comparator(), other.comparator());
+    }
+
+    // Takes elements which are only in this set, in both sets, only in other set
+    @SuppressWarnings("unchecked")
+    private ArraySet<T> merge(ArraySet<T> other, boolean onlyThis, boolean both, boolean onlyOther) {
+        List<T> left = arrayList;
+        List<T> right = other.arrayList;
+        Object[] result = new Object[(onlyThis || both ? left.size() : 0) + (onlyOther ? right.size() : 0)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < left.size() && j < right.size()) {
+            int compared = comparator.compare(left.get(i), right.get(j));
+            if (compared < 0) {
+                if (onlyThis) {
+                    result[size++] = left.get(i);
+                }
+                i++;
+            } else if (compared > 0) {
+                if (onlyOther) {
+                    result[size++] = right.get(j);
+                }
+                j++;
             } else {
-                if (initType == InitType.ORDINARY) {
-                    TreeSet<T> treeSet = new TreeSet<>(comparator);
-                    treeSet.addAll(collection);
-                    collection = treeSet;
-                } // else: Collection is already sorted
-                arrayList = new ArrayList<>(collection);
+                if (both) {
+                    result[size++] = left.get(i);
+                }
+                i++;
+                j++;
             }
         }
+        for (; onlyThis && i < left.size(); i++) {
+            result[size++] = left.get(i);
+        }
+        for (; onlyOther && j < right.size(); j++) {
+            result[size++] = right.get(j);
+        }
+        List<T> merged = Arrays.asList((T[]) (size == result.length ? result : Arrays.copyOf(result, size)));
+        return new ArraySet<>(merged, comparator(), InitType.FROM_SORTED);
     }
 
     public int getIndex(T t, boolean least, boolean inclusive) {
+        if (searchIndex != null) {
+            // Index of the first element greater than t (or greater or equal), clamped to this subset
+            int bound = least != inclusive ? searchIndex.upperBound(t) : searchIndex.lowerBound(t);
+            bound = Math.min(Math.max(bound - offset, 0), arrayList.size());
+            return least ? bound : bound - 1;
+        }
         int index = Collections.binarySearch(arrayList, t, comparator);
         if (index < 0) {
             index = -(index + 1);
@@ -182,14 +302,25 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
 
     @Override
     public NavigableSet<T> descendingSet() {
-        return new ArraySet<>(arrayList, comparator.reversed());
+        return new DescendingSet<>(this);
     }
 
     @Override
     public Iterator<T> descendingIterator() {
-        ArrayList<T> list = new ArrayList<>(arrayList);
-        Collections.reverse(list);
-        return list.iterator();
+        return new Iterator<>() {
+            private int index = arrayList.size() - 1;
+
+            @Override
+            public boolean hasNext() {
+                return index >= 0;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return arrayList.get(index--);
+            }
+        };
     }
 
     @Override
@@ -222,7 +353,7 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
         if (end < start) {
             return new ArraySet<>(null, comparator(), InitType.ORDINARY);
         }
-        return new ArraySet<>(arrayList.subList(start, end), comparator(), InitType.FROM_SUBSET);
+        return new ArraySet<>(this, start, end);
     }
 
     @Override
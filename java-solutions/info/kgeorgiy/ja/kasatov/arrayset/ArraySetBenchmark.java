@@ -0,0 +1,67 @@
+package info.kgeorgiy.ja.kasatov.arrayset;
+import java.util.*;
+
+
+/**
+ * Compares {@link Collections#binarySearch} over the sorted list with {@link EytzingerIndex}
+ * on random successful and unsuccessful searches for sets of growing size.
+ */
+public class ArraySetBenchmark {
+    private static final int QUERIES = 1 << 20;
+    private static final int ROUNDS = 5;
+
+    // Usage: ArraySetBenchmark [max size]
+    public static void main(String[] args) {
+        int maxSize = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 22;
+        Random random = new Random(2024);
+        Comparator<Integer> comparator = Integer::compare;
+        System.out.printf("%10s %16s %16s%n", "size", "binary, ns/op", "eytzinger, ns/op");
+        for (int size = 1 << 8; size <= maxSize; size <<= 2) {
+            // Elements are allocated in random order, like in a set built from unsorted input
+            List<Integer> elements = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                elements.add(2 * i);
+            }
+            Collections.shuffle(elements, random);
+            elements = new ArrayList<>(elements.stream().map(Integer::valueOf).toList());
+            elements.sort(comparator);
+            EytzingerIndex<Integer> index = new EytzingerIndex<>(elements, comparator);
+
+            Integer[] queries = new Integer[QUERIES];
+            for (int i = 0; i < QUERIES; i++) {
+                queries[i] = random.nextInt(2 * size + 1);
+            }
+
+            List<Integer> sorted = elements;
+            double binary = measure(queries, query -> {
+                int found = Collections.binarySearch(sorted, query, comparator);
+                return found < 0 ? -(found + 1) : found;
+            });
+            double eytzinger = measure(queries, index::lowerBound);
+            System.out.printf("%10d %16.1f %16.1f%n", size, binary, eytzinger);
+        }
+    }
+
+    private interface Search {
+        int lowerBound(Integer query);
+    }
+
+    // Returns best time per query over rounds, the first round is warmup
+    private static double measure(Integer[] queries, Search search) {
+        double best = Double.MAX_VALUE;
+        long checksum = 0;
+        for (int round = 0; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (Integer query : queries) {
+                checksum += search.lowerBound(query);
+            }
+            if (round > 0) {
+                best = Math.min(best, (double) (System.nanoTime() - start) / queries.length);
+            }
+        }
+        if (checksum == 42) {
+            System.out.println();
+        }
+        return best;
+    }
+}
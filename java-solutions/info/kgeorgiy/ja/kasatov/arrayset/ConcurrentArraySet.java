@@ -0,0 +1,354 @@
+package info.kgeorgiy.ja.kasatov.arrayset;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+
+/**
+ * Mutable thread-safe sorted set for read-mostly workloads. Contents are an immutable {@link ArraySet}
+ * plus small sorted sets of added and removed elements, published together through a volatile field:
+ * reads never lock, writes copy the small sets under a lock and merge them into the main array
+ * when they grow over about a square root of its size.
+ * <p>
+ * Iterators see the contents at the moment they were made. Unlike the {@link NavigableSet} contract,
+ * sub-sets are not views: they are immutable sub-sets of {@link #snapshot()}, detached from later changes.
+ * Only the descending set is a view of this set.
+ */
+public class ConcurrentArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
+
+    // Deltas of this size are merged even into small sets
+    private static final int MIN_DELTA = 32;
+
+    private final Comparator<? super T> comparator;
+    private final Object writeLock = new Object();
+    // Writers replace it under writeLock, snapshot() may replace it with the same elements merged
+    private final AtomicReference<State<T>> state;
+
+
+    public ConcurrentArraySet() {
+        this(Collections.emptyList(), null);
+    }
+
+    public ConcurrentArraySet(Collection<? extends T> collection) {
+        this(collection, null);
+    }
+
+    public ConcurrentArraySet(Collection<? extends T> collection, Comparator<? super T> comparator) {
+        ArraySet<T> base = new ArraySet<>(collection, comparator);
+        this.comparator = comparator;
+        this.state = new AtomicReference<>(new State<>(base, empty(), empty()));
+    }
+
+    private ArraySet<T> empty() {
+        return new ArraySet<>(Collections.emptyList(), comparator);
+    }
+
+    private ArraySet<T> singleton(T t) {
+        return new ArraySet<>(List.of(t), comparator);
+    }
+
+    // Invariants: removed is a subset of base, added doesn't intersect base
+    private record State<T>(ArraySet<T> base, ArraySet<T> added, ArraySet<T> removed) {
+        boolean contains(T t) {
+            return !added.isEmpty() && added.contains(t) || base.contains(t) && (removed.isEmpty() || !removed.contains(t));
+        }
+
+        int size() {
+            return base.size() + added.size() - removed.size();
+        }
+
+        int deltaSize() {
+            return added.size() + removed.size();
+        }
+
+        // The closest of a base element, skipping removed ones, and an added element
+        T closest(T fromBase, UnaryOperator<T> next, T fromAdded, Comparator<? super T> order) {
+            while (fromBase != null && !removed.isEmpty() && removed.contains(fromBase)) {
+                fromBase = next.apply(fromBase);
+            }
+            if (fromBase == null || fromAdded == null) {
+                return fromBase == null ? fromAdded : fromBase;
+            }
+            return order.compare(fromBase, fromAdded) <= 0 ? fromBase : fromAdded;
+        }
+    }
+
+    // Replaces state with a new one, merging deltas into the base if they are large enough
+    private void publish(ArraySet<T> base, ArraySet<T> added, ArraySet<T> removed) {
+        if (added.size() + removed.size() >= Math.max(MIN_DELTA, (int) Math.sqrt(base.size()))) {
+            base = base.difference(removed).union(added);
+            added = empty();
+            removed = empty();
+        }
+        state.set(new State<>(base, added, removed));
+    }
+
+    /**
+     * Returns immutable set of the current elements. Pending changes are merged without locking,
+     * and the merged array replaces the current one unless a writer has changed it meanwhile.
+     */
+    public ArraySet<T> snapshot() {
+        State<T> current = state.get();
+        if (current.deltaSize() == 0) {
+            return current.base();
+        }
+        ArraySet<T> merged = current.base().difference(current.removed()).union(current.added());
+        state.compareAndSet(current, new State<>(merged, empty(), empty()));
+        return merged;
+    }
+
+    @Override
+    public boolean add(T t) {
+        ArraySet<T> element = singleton(t);
+        synchronized (writeLock) {
+            State<T> current = state.get();
+            if (current.contains(t)) {
+                return false;
+            }
+            if (current.removed().contains(t)) {
+                publish(current.base(), current.added(), current.removed().difference(element));
+            } else {
+                publish(current.base(), current.added().union(element), current.removed());
+            }
+            return true;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object o) {
+        ArraySet<T> element = singleton((T) Objects.requireNonNull(o));
+        synchronized (writeLock) {
+            State<T> current = state.get();
+            if (!current.contains((T) o)) {
+                return false;
+            }
+            if (current.added().contains(o)) {
+                publish(current.base(), current.added().difference(element), current.removed());
+            } else {
+                publish(current.base(), current.added(), current.removed().union(element));
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (writeLock) {
+            state.set(new State<>(empty(), empty(), empty()));
+        }
+    }
+
+    @Override
+    public T pollFirst() {
+        synchronized (writeLock) {
+            State<T> current = state.get();
+            T first = current.closest(firstOrNull(current.base()), current.base()::higher, firstOrNull(current.added()), fullComparator());
+            if (first != null) {
+                remove(first);
+            }
+            return first;
+        }
+    }
+
+    @Override
+    public T pollLast() {
+        synchronized (writeLock) {
+            State<T> current = state.get();
+            T last = current.closest(lastOrNull(current.base()), current.base()::lower, lastOrNull(current.added()), reversedComparator());
+            if (last != null) {
+                remove(last);
+            }
+            return last;
+        }
+    }
+
+    private static <T> T firstOrNull(ArraySet<T> set) {
+        return set.isEmpty() ? null : set.first();
+    }
+
+    private static <T> T lastOrNull(ArraySet<T> set) {
+        return set.isEmpty() ? null : set.last();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Comparator<? super T> fullComparator() {
+        return comparator != null ? comparator : (o1, o2) -> ((Comparable<T>) o1).compareTo(o2);
+    }
+
+    private Comparator<? super T> reversedComparator() {
+        return Collections.reverseOrder(comparator);
+    }
+
+    @Override
+    public T lower(T t) {
+        State<T> current = state.get();
+        return current.closest(current.base().lower(t), current.base()::lower, current.added().lower(t), reversedComparator());
+    }
+
+    @Override
+    public T floor(T t) {
+        State<T> current = state.get();
+        return current.closest(current.base().floor(t), current.base()::lower, current.added().floor(t), reversedComparator());
+    }
+
+    @Override
+    public T ceiling(T t) {
+        State<T> current = state.get();
+        return current.closest(current.base().ceiling(t), current.base()::higher, current.added().ceiling(t), fullComparator());
+    }
+
+    @Override
+    public T higher(T t) {
+        State<T> current = state.get();
+        return current.closest(current.base().higher(t), current.base()::higher, current.added().higher(t), fullComparator());
+    }
+
+    @Override
+    public T first() {
+        State<T> current = state.get();
+        T first = current.closest(firstOrNull(current.base()), current.base()::higher, firstOrNull(current.added()), fullComparator());
+        if (first == null) throw new NoSuchElementException();
+        return first;
+    }
+
+    @Override
+    public T last() {
+        State<T> current = state.get();
+        T last = current.closest(lastOrNull(current.base()), current.base()::lower, lastOrNull(current.added()), reversedComparator());
+        if (last == null) throw new NoSuchElementException();
+        return last;
+    }
+
+    @Override
+    public int size() {
+        return state.get().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return state.get().size() == 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+        return state.get().contains((T) Objects.requireNonNull(o));
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        State<T> current = state.get();
+        return new MergeIterator(current, current.base().iterator(), current.added().iterator(), fullComparator());
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        State<T> current = state.get();
+        return new MergeIterator(current, current.base().descendingIterator(), current.added().descendingIterator(), reversedComparator());
+    }
+
+    // Merges base elements which aren't removed with added ones, remove() goes to the set itself
+    private class MergeIterator implements Iterator<T> {
+        private final State<T> state;
+        private final Iterator<T> base;
+        private final Iterator<T> added;
+        private final Comparator<? super T> order;
+        private T nextBase;
+        private T nextAdded;
+        private T last;
+
+        MergeIterator(State<T> state, Iterator<T> base, Iterator<T> added, Comparator<? super T> order) {
+            this.state = state;
+            this.base = base;
+            this.added = added;
+            this.order = order;
+            advanceBase();
+            nextAdded = added.hasNext() ? added.next() : null;
+        }
+
+        private void advanceBase() {
+            nextBase = null;
+            while (base.hasNext() && nextBase == null) {
+                T candidate = base.next();
+                if (state.removed().isEmpty() || !state.removed().contains(candidate)) {
+                    nextBase = candidate;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextBase != null || nextAdded != null;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            if (nextAdded == null || nextBase != null && order.compare(nextBase, nextAdded) < 0) {
+                last = nextBase;
+                advanceBase();
+            } else {
+                last = nextAdded;
+                nextAdded = added.hasNext() ? added.next() : null;
+            }
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) throw new IllegalStateException();
+            ConcurrentArraySet.this.remove(last);
+            last = null;
+        }
+    }
+
+    @Override
+    public NavigableSet<T> descendingSet() {
+        return new DescendingSet<>(this);
+    }
+
+    /**
+     * Returns immutable sub-set of the current {@link #snapshot()}, which doesn't reflect later changes.
+     */
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        return snapshot().subSet(fromElement, fromInclusive, toElement, toInclusive);
+    }
+
+    /**
+     * Returns immutable head set of the current {@link #snapshot()}, which doesn't reflect later changes.
+     */
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+        return snapshot().headSet(toElement, inclusive);
+    }
+
+    /**
+     * Returns immutable tail set of the current {@link #snapshot()}, which doesn't reflect later changes.
+     */
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+        return snapshot().tailSet(fromElement, inclusive);
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> headSet(T toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        return tailSet(fromElement, true);
+    }
+}
@@ -0,0 +1,138 @@
+package info.kgeorgiy.ja.kasatov.arrayset;
+import java.util.*;
+
+
+/**
+ * Reverse order view of a navigable set. Every operation is delegated to the opposite
+ * operation of the base set, so views are made in O(1) and share its storage:
+ * sub-sets of the view are views of base sub-sets, and the descending set of the view is the base.
+ */
+class DescendingSet<T> extends AbstractSet<T> implements NavigableSet<T> {
+
+    private final NavigableSet<T> base;
+
+
+    DescendingSet(NavigableSet<T> base) {
+        this.base = base;
+    }
+
+    @Override
+    public T lower(T t) {
+        return base.higher(t);
+    }
+
+    @Override
+    public T floor(T t) {
+        return base.ceiling(t);
+    }
+
+    @Override
+    public T ceiling(T t) {
+        return base.floor(t);
+    }
+
+    @Override
+    public T higher(T t) {
+        return base.lower(t);
+    }
+
+    @Override
+    public T pollFirst() {
+        return base.pollLast();
+    }
+
+    @Override
+    public T pollLast() {
+        return base.pollFirst();
+    }
+
+    @Override
+    public int size() {
+        return base.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return base.isEmpty();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return base.contains(o);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return base.descendingIterator();
+    }
+
+    @Override
+    public boolean add(T t) {
+        return base.add(t);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return base.remove(o);
+    }
+
+    @Override
+    public void clear() {
+        base.clear();
+    }
+
+    @Override
+    public NavigableSet<T> descendingSet() {
+        return base;
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        return base.iterator();
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        return new DescendingSet<>(base.subSet(toElement, toInclusive, fromElement, fromInclusive));
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+        return new DescendingSet<>(base.tailSet(toElement, inclusive));
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+        return new DescendingSet<>(base.headSet(fromElement, inclusive));
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        return Collections.reverseOrder(base.comparator());
+    }
+
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> headSet(T toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public T first() {
+        return base.last();
+    }
+
+    @Override
+    public T last() {
+        return base.first();
+    }
+}
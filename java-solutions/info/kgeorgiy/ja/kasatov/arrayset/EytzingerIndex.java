@@ -0,0 +1,65 @@
+package info.kgeorgiy.ja.kasatov.arrayset;
+import java.util.*;
+
+
+/**
+ * Search index over a sorted list which keeps elements in Eytzinger (breadth-first) order:
+ * children of node {@code k} are {@code 2k} and {@code 2k + 1}. First levels of the tree,
+ * which every search passes, are packed together at the start of the array, and the search loop
+ * has no data-dependent branches, only the index arithmetic.
+ */
+class EytzingerIndex<T> {
+
+    // 1-based, tree[0] is unused
+    private final Object[] tree;
+    // Position of tree[k] in the sorted list
+    private final int[] ranks;
+    private final int size;
+    private final Comparator<? super T> comparator;
+
+
+    EytzingerIndex(List<T> sorted, Comparator<? super T> comparator) {
+        this.size = sorted.size();
+        this.tree = new Object[size + 1];
+        this.ranks = new int[size + 1];
+        this.comparator = comparator;
+        build(sorted, 0, 1);
+    }
+
+    // In-order traversal of the tree visits elements in sorted order
+    private int build(List<T> sorted, int next, int k) {
+        if (k <= size) {
+            next = build(sorted, next, 2 * k);
+            tree[k] = sorted.get(next);
+            ranks[k] = next++;
+            next = build(sorted, next, 2 * k + 1);
+        }
+        return next;
+    }
+
+    /**
+     * Returns index of the first element greater than or equal to {@code key}, or size if there is none.
+     */
+    int lowerBound(T key) {
+        return bound(key, 0);
+    }
+
+    /**
+     * Returns index of the first element greater than {@code key}, or size if there is none.
+     */
+    int upperBound(T key) {
+        return bound(key, 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int bound(T key, int strict) {
+        int k = 1;
+        while (k <= size) {
+            // Goes right if element is less than key (or equal to it for strict bound)
+            k = 2 * k + (comparator.compare((T) tree[k], key) < strict ? 1 : 0);
+        }
+        // Leaves the right turns made after the last left one, the last left turn was made at the answer
+        k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+        return k == 0 ? size : ranks[k];
+    }
+}
@@ -0,0 +1,306 @@
+package info.kgeorgiy.ja.kasatov.arrayset;
+import java.util.*;
+
+
+/**
+ * Immutable sorted set of {@code int} values kept in a sorted {@code int[]} in natural order.
+ * Sub-sets are views over the same array. Methods taking and returning {@code int} never box.
+ */
+public class IntArraySet extends AbstractSet<Integer> implements NavigableSet<Integer> {
+
+    private final int[] values;
+    private final int from;
+    private final int to;
+
+
+    public IntArraySet() {
+        this(new int[0], 0, 0);
+    }
+
+    public IntArraySet(int... values) {
+        this.values = sortedUnique(values.clone());
+        this.from = 0;
+        this.to = this.values.length;
+    }
+
+    public IntArraySet(Collection<? extends Integer> collection) {
+        this.values = sortedUnique(collection.stream().mapToInt(Integer::intValue).toArray());
+        this.from = 0;
+        this.to = this.values.length;
+    }
+
+    private IntArraySet(int[] values, int from, int to) {
+        this.values = values;
+        this.from = from;
+        this.to = to;
+    }
+
+    private static int[] sortedUnique(int[] values) {
+        Arrays.sort(values);
+        int size = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i == 0 || values[i] != values[size - 1]) {
+                values[size++] = values[i];
+            }
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    // Returns absolute index, from - 1 or to if there is no such element
+    private int getIndex(int value, boolean least, boolean inclusive) {
+        int index = Arrays.binarySearch(values, from, to, value);
+        if (index < 0) {
+            index = -(index + 1);
+            if (!least) {
+                index--;
+            }
+        } else if (!inclusive) {
+            index += least ? 1 : -1;
+        }
+        return index;
+    }
+
+    private boolean inRange(int index) {
+        return from <= index && index < to;
+    }
+
+    private Integer elementOrNull(int index) {
+        return inRange(index) ? values[index] : null;
+    }
+
+    private int elementOrElse(int index, int orElse) {
+        return inRange(index) ? values[index] : orElse;
+    }
+
+    public boolean contains(int value) {
+        return Arrays.binarySearch(values, from, to, value) >= 0;
+    }
+
+    /**
+     * Returns the greatest element less than {@code value}, or {@code orElse} if there is no such element.
+     */
+    public int lower(int value, int orElse) {
+        return elementOrElse(getIndex(value, false, false), orElse);
+    }
+
+    /**
+     * Returns the greatest element less than or equal to {@code value}, or {@code orElse} if there is no such element.
+     */
+    public int floor(int value, int orElse) {
+        return elementOrElse(getIndex(value, false, true), orElse);
+    }
+
+    /**
+     * Returns the least element greater than or equal to {@code value}, or {@code orElse} if there is no such element.
+     */
+    public int ceiling(int value, int orElse) {
+        return elementOrElse(getIndex(value, true, true), orElse);
+    }
+
+    /**
+     * Returns the least element greater than {@code value}, or {@code orElse} if there is no such element.
+     */
+    public int higher(int value, int orElse) {
+        return elementOrElse(getIndex(value, true, false), orElse);
+    }
+
+    public int firstInt() {
+        if (isEmpty()) throw new NoSuchElementException();
+        return values[from];
+    }
+
+    public int lastInt() {
+        if (isEmpty()) throw new NoSuchElementException();
+        return values[to - 1];
+    }
+
+    public int[] toIntArray() {
+        return Arrays.copyOfRange(values, from, to);
+    }
+
+    @Override
+    public Integer lower(Integer t) {
+        return elementOrNull(getIndex(t, false, false));
+    }
+
+    @Override
+    public Integer floor(Integer t) {
+        return elementOrNull(getIndex(t, false, true));
+    }
+
+    @Override
+    public Integer ceiling(Integer t) {
+        return elementOrNull(getIndex(t, true, true));
+    }
+
+    @Override
+    public Integer higher(Integer t) {
+        return elementOrNull(getIndex(t, true, false));
+    }
+
+    @Override
+    public Integer pollFirst() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Integer pollLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return from == to;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return contains((int) (Integer) Objects.requireNonNull(o));
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int index = from;
+
+            @Override
+            public boolean hasNext() {
+                return index < to;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return values[index++];
+            }
+        };
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt descendingIterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int index = to - 1;
+
+            @Override
+            public boolean hasNext() {
+                return index >= from;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return values[index--];
+            }
+        };
+    }
+
+    @Override
+    public boolean add(Integer t) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Integer> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public NavigableSet<Integer> descendingSet() {
+        return new DescendingSet<>(this);
+    }
+
+    @Override
+    public IntArraySet subSet(Integer fromElement, boolean fromInclusive, Integer toElement, boolean toInclusive) {
+        if (fromElement > toElement) throw new IllegalArgumentException();
+        return subSetByRange(
+            getIndex(fromElement, true, fromInclusive),
+            getIndex(toElement, false, toInclusive) + 1
+        );
+    }
+
+    @Override
+    public IntArraySet headSet(Integer toElement, boolean inclusive) {
+        return subSetByRange(from, getIndex(toElement, false, inclusive) + 1);
+    }
+
+    @Override
+    public IntArraySet tailSet(Integer fromElement, boolean inclusive) {
+        return subSetByRange(getIndex(fromElement, true, inclusive), to);
+    }
+
+    private IntArraySet subSetByRange(int start, int end) {
+        return new IntArraySet(values, start, Math.max(start, end));
+    }
+
+    @Override
+    public IntArraySet subSet(Integer fromElement, Integer toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public IntArraySet headSet(Integer toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public IntArraySet tailSet(Integer fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public Comparator<? super Integer> comparator() {
+        return null;
+    }
+
+    @Override
+    public Integer first() {
+        return firstInt();
+    }
+
+    @Override
+    public Integer last() {
+        return lastInt();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof IntArraySet other) {
+            return Arrays.equals(values, from, to, other.values, other.from, other.to);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash += Integer.hashCode(values[i]);
+        }
+        return hash;
+    }
+}
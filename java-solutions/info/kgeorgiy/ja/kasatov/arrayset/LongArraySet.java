@@ -0,0 +1,306 @@
+package info.kgeorgiy.ja.kasatov.arrayset;
+import java.util.*;
+
+
+/**
+ * Immutable sorted set of {@code long} values kept in a sorted {@code long[]} in natural order.
+ * Sub-sets are views over the same array. Methods taking and returning {@code long} never box.
+ */
+public class LongArraySet extends AbstractSet<Long> implements NavigableSet<Long> {
+
+    private final long[] values;
+    private final int from;
+    private final int to;
+
+
+    public LongArraySet() {
+        this(new long[0], 0, 0);
+    }
+
+    public LongArraySet(long... values) {
+        this.values = sortedUnique(values.clone());
+        this.from = 0;
+        this.to = this.values.length;
+    }
+
+    public LongArraySet(Collection<? extends Long> collection) {
+        this.values = sortedUnique(collection.stream().mapToLong(Long::longValue).toArray());
+        this.from = 0;
+        this.to = this.values.length;
+    }
+
+    private LongArraySet(long[] values, int from, int to) {
+        this.values = values;
+        this.from = from;
+        this.to = to;
+    }
+
+    private static long[] sortedUnique(long[] values) {
+        Arrays.sort(values);
+        int size = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i == 0 || values[i] != values[size - 1]) {
+                values[size++] = values[i];
+            }
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    // Returns absolute index, from - 1 or to if there is no such element
+    private int getIndex(long value, boolean least, boolean inclusive) {
+        int index = Arrays.binarySearch(values, from, to, value);
+        if (index < 0) {
+            index = -(index + 1);
+            if (!least) {
+                index--;
+            }
+        } else if (!inclusive) {
+            index += least ? 1 : -1;
+        }
+        return index;
+    }
+
+    private boolean inRange(int index) {
+        return from <= index && index < to;
+    }
+
+    private Long elementOrNull(int index) {
+        return inRange(index) ? values[index] : null;
+    }
+
+    private long elementOrElse(int index, long orElse) {
+        return inRange(index) ? values[index] : orElse;
+    }
+
+    public boolean contains(long value) {
+        return Arrays.binarySearch(values, from, to, value) >= 0;
+    }
+
+    /**
+     * Returns the greatest element less than {@code value}, or {@code orElse} if there is no such element.
+     */
+    public long lower(long value, long orElse) {
+        return elementOrElse(getIndex(value, false, false), orElse);
+    }
+
+    /**
+     * Returns the greatest element less than or equal to {@code value}, or {@code orElse} if there is no such element.
+     */
+    public long floor(long value, long orElse) {
+        return elementOrElse(getIndex(value, false, true), orElse);
+    }
+
+    /**
+     * Returns the least element greater than or equal to {@code value}, or {@code orElse} if there is no such element.
+     */
+    public long ceiling(long value, long orElse) {
+        return elementOrElse(getIndex(value, true, true), orElse);
+    }
+
+    /**
+     * Returns the least element greater than {@code value}, or {@code orElse} if there is no such element.
+     */
+    public long higher(long value, long orElse) {
+        return elementOrElse(getIndex(value, true, false), orElse);
+    }
+
+    public long firstLong() {
+        if (isEmpty()) throw new NoSuchElementException();
+        return values[from];
+    }
+
+    public long lastLong() {
+        if (isEmpty()) throw new NoSuchElementException();
+        return values[to - 1];
+    }
+
+    public long[] toLongArray() {
+        return Arrays.copyOfRange(values, from, to);
+    }
+
+    @Override
+    public Long lower(Long t) {
+        return elementOrNull(getIndex(t, false, false));
+    }
+
+    @Override
+    public Long floor(Long t) {
+        return elementOrNull(getIndex(t, false, true));
+    }
+
+    @Override
+    public Long ceiling(Long t) {
+        return elementOrNull(getIndex(t, true, true));
+    }
+
+    @Override
+    public Long higher(Long t) {
+        return elementOrNull(getIndex(t, true, false));
+    }
+
+    @Override
+    public Long pollFirst() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Long pollLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return from == to;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return contains((long) (Long) Objects.requireNonNull(o));
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            private int index = from;
+
+            @Override
+            public boolean hasNext() {
+                return index < to;
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return values[index++];
+            }
+        };
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong descendingIterator() {
+        return new PrimitiveIterator.OfLong() {
+            private int index = to - 1;
+
+            @Override
+            public boolean hasNext() {
+                return index >= from;
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return values[index--];
+            }
+        };
+    }
+
+    @Override
+    public boolean add(Long t) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Long> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public NavigableSet<Long> descendingSet() {
+        return new DescendingSet<>(this);
+    }
+
+    @Override
+    public LongArraySet subSet(Long fromElement, boolean fromInclusive, Long toElement, boolean toInclusive) {
+        if (fromElement > toElement) throw new IllegalArgumentException();
+        return subSetByRange(
+            getIndex(fromElement, true, fromInclusive),
+            getIndex(toElement, false, toInclusive) + 1
+        );
+    }
+
+    @Override
+    public LongArraySet headSet(Long toElement, boolean inclusive) {
+        return subSetByRange(from, getIndex(toElement, false, inclusive) + 1);
+    }
+
+    @Override
+    public LongArraySet tailSet(Long fromElement, boolean inclusive) {
+        return subSetByRange(getIndex(fromElement, true, inclusive), to);
+    }
+
+    private LongArraySet subSetByRange(int start, int end) {
+        return new LongArraySet(values, start, Math.max(start, end));
+    }
+
+    @Override
+    public LongArraySet subSet(Long fromElement, Long toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public LongArraySet headSet(Long toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public LongArraySet tailSet(Long fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public Comparator<? super Long> comparator() {
+        return null;
+    }
+
+    @Override
+    public Long first() {
+        return firstLong();
+    }
+
+    @Override
+    public Long last() {
+        return lastLong();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof LongArraySet other) {
+            return Arrays.equals(values, from, to, other.values, other.from, other.to);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash += Long.hashCode(values[i]);
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,67 @@
+package info.kgeorgiy.ja.kasatov.hello;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Thread-safe pool of direct buffers. Capacities are powers of two, a buffer of
+ * the smallest fitting capacity is given out, so a short datagram doesn't hold 64 KiB.
+ * Every size class keeps at most about {@value RETAINED_BYTES} bytes, extra buffers are left to GC.
+ */
+public class ByteBufferPool {
+    /**
+     * Max payload of UDP datagram.
+     */
+    public static final int MAX_DATAGRAM_SIZE = 65507;
+
+    private static final int MIN_SHIFT = 6;
+    private static final int MAX_SHIFT = 16;
+    private static final int RETAINED_BYTES = 1 << 20;
+
+    private final List<BlockingQueue<ByteBuffer>> classes = new ArrayList<>();
+
+    public ByteBufferPool() {
+        for (int shift = MIN_SHIFT; shift <= MAX_SHIFT; shift++) {
+            classes.add(new ArrayBlockingQueue<>(RETAINED_BYTES >> shift));
+        }
+    }
+
+    private static int shiftFor(int size) {
+        return Math.max(MIN_SHIFT, Integer.SIZE - Integer.numberOfLeadingZeros(Math.max(size, 1) - 1));
+    }
+
+    /**
+     * Returns cleared buffer with limit {@code size}.
+     */
+    public ByteBuffer acquire(int size) {
+        int shift = shiftFor(size);
+        if (shift > MAX_SHIFT) {
+            throw new IllegalArgumentException("Buffer is too large: " + size);
+        }
+        ByteBuffer buffer = classes.get(shift - MIN_SHIFT).poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(1 << shift);
+        }
+        return buffer.clear().limit(size);
+    }
+
+    /**
+     * Returns buffer with copy of remaining bytes of {@code source}, ready for reading.
+     */
+    public ByteBuffer copyOf(ByteBuffer source) {
+        return acquire(source.remaining()).put(source).flip();
+    }
+
+    /**
+     * Gives buffer back, it mustn't be used by caller afterwards.
+     */
+    public void release(ByteBuffer buffer) {
+        int shift = Integer.numberOfTrailingZeros(buffer.capacity());
+        if (buffer.isDirect() && buffer.capacity() == 1 << shift && MIN_SHIFT <= shift && shift <= MAX_SHIFT) {
+            classes.get(shift - MIN_SHIFT).offer(buffer);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package info.kgeorgiy.ja.kasatov.hello;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+
+/**
+ * Compares building of server answer from a received datagram: through strings as it used to be,
+ * and through {@link MyUDPUtils#buildAnswer} with pooled buffers.
+ */
+public class HelloAnswerBenchmark {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 10;
+    private static final int OPERATIONS = 1_000_000;
+
+    // Usage: HelloAnswerBenchmark [request length]
+    public static void main(String[] args) {
+        if (args == null || Arrays.stream(args).anyMatch(Objects::isNull) || args.length > 1) {
+            System.err.println("Incorrect arguments");
+            return;
+        }
+        int length = args.length == 1 ? Integer.parseInt(args[0]) : 16;
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) 'a');
+        ByteBuffer request = ByteBuffer.allocateDirect(length).put(bytes).flip();
+        ByteBufferPool buffers = new ByteBufferPool();
+
+        measure("strings", request, buffers, HelloAnswerBenchmark::viaStrings);
+        measure("bytes", request, buffers, HelloAnswerBenchmark::viaBytes);
+    }
+
+    private interface AnswerPath {
+        ByteBuffer answer(ByteBuffer request, ByteBufferPool buffers);
+    }
+
+    private static ByteBuffer viaStrings(ByteBuffer request, ByteBufferPool buffers) {
+        String answer = "Hello, " + StandardCharsets.UTF_8.decode(request);
+        byte[] bytes = answer.getBytes(StandardCharsets.UTF_8);
+        return buffers.acquire(bytes.length).put(bytes).flip();
+    }
+
+    private static ByteBuffer viaBytes(ByteBuffer request, ByteBufferPool buffers) {
+        return MyUDPUtils.buildAnswer(request, buffers);
+    }
+
+    private static void measure(String name, ByteBuffer request, ByteBufferPool buffers, AnswerPath path) {
+        // Result is consumed so that JIT can't drop the work
+        ToIntFunction<ByteBuffer> round = source -> {
+            int checksum = 0;
+            for (int i = 0; i < OPERATIONS; i++) {
+                ByteBuffer response = path.answer(source.duplicate(), buffers);
+                checksum += response.get(response.limit() - 1);
+                buffers.release(response);
+            }
+            return checksum;
+        };
+        int checksum = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            checksum += round.applyAsInt(request);
+        }
+        double best = Double.MAX_VALUE;
+        double total = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            checksum += round.applyAsInt(request);
+            double nanosPerOperation = (double) (System.nanoTime() - start) / OPERATIONS;
+            best = Math.min(best, nanosPerOperation);
+            total += nanosPerOperation;
+        }
+        System.out.printf("%-8s mean %7.1f ns/op, best %7.1f ns/op (checksum %d)%n",
+                name, total / ROUNDS, best, checksum);
+    }
+}
@@ -0,0 +1,60 @@
+package info.kgeorgiy.ja.kasatov.hello;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Compares fixed pools of platform threads with virtual threads on both sides of a loopback run.
+ * Printing of requests and answers is suppressed while measuring. Needs Java 21 or newer.
+ */
+public class HelloThreadsBenchmark {
+    private static final int PORT = 28_999;
+
+    // Usage: HelloThreadsBenchmark <streams> <requests per stream> [server threads]
+    public static void main(String[] args) {
+        if (args == null || Arrays.stream(args).anyMatch(Objects::isNull) || (args.length != 2 && args.length != 3)) {
+            System.err.println("Incorrect arguments");
+            return;
+        }
+        if (!MyUDPUtils.VIRTUAL_THREADS_SUPPORTED) {
+            System.err.println("Virtual threads aren't supported by Java " + Runtime.version().feature()
+                    + ", both modes would run platform threads, nothing to compare");
+            return;
+        }
+        int streams = Integer.parseInt(args[0]);
+        int requests = Integer.parseInt(args[1]);
+        int serverThreads = args.length == 3
+                ? Integer.parseInt(args[2])
+                : Runtime.getRuntime().availableProcessors();
+
+        // Warm up both modes
+        run(false, Math.min(streams, 16), requests, serverThreads);
+        run(true, Math.min(streams, 16), requests, serverThreads);
+        System.out.printf("%-10s %10s %12s  %s%n", "mode", "time, ms", "requests/s", "latency");
+        for (boolean virtual : new boolean[]{false, true}) {
+            RunResult result = run(virtual, streams, requests, serverThreads);
+            System.out.printf("%-10s %10.1f %12.0f  %s%n", virtual ? "virtual" : "platform",
+                    result.nanos() / 1e6, result.statistics().getAnswered() / (result.nanos() / 1e9),
+                    result.statistics().summary());
+        }
+    }
+
+    private record RunResult(long nanos, RequestStatistics statistics) {
+    }
+
+    private static RunResult run(boolean virtual, int streams, int requests, int serverThreads) {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try (HelloUDPServer server = new HelloUDPServer(virtual)) {
+            server.start(PORT, serverThreads);
+            HelloUDPClient client = new HelloUDPClient(virtual);
+            long start = System.nanoTime();
+            client.run("localhost", PORT, "bench_", streams, requests);
+            return new RunResult(System.nanoTime() - start, client.getStatistics());
+        } finally {
+            System.setOut(out);
+        }
+    }
+}
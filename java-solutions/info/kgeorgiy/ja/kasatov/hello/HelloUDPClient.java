@@ -3,15 +3,43 @@ package info.kgeorgiy.ja.kasatov.hello;
 import info.kgeorgiy.java.advanced.hello.HelloClient;
 
 import java.io.IOException;
-import java.net.*;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.CharsetEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Objects;
 import java.util.concurrent.*;
 
 public class HelloUDPClient implements HelloClient {
+    // Platform threads running request streams in virtual mode on runtimes without virtual threads
+    private static final int MAX_FALLBACK_THREADS = 256;
 
-    private static final int SOCKET_TIMEOUT = 100;
+    private final boolean virtualThreads;
+    private RequestStatistics statistics = new RequestStatistics();
+
+    public HelloUDPClient() {
+        this(false);
+    }
+
+    /**
+     * @param virtualThreads whether every request stream gets its own virtual thread with blocking socket,
+     *                       instead of a platform thread with its own selector
+     */
+    public HelloUDPClient(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
 
     /**
      * Runs {@link HelloUDPClient#run(String, int, String, int, int)} with arguments.
@@ -27,13 +55,22 @@ public class HelloUDPClient implements HelloClient {
             System.err.println("Incorrect arguments");
             return;
         }
-        new HelloUDPClient().run(
+        HelloUDPClient client = new HelloUDPClient();
+        client.run(
                 args[0],
                 Integer.parseInt(args[1]),
                 args[2],
                 Integer.parseInt(args[3]),
                 Integer.parseInt(args[4])
         );
+        System.err.println(client.getStatistics().summary());
+    }
+
+    /**
+     * Returns latencies and retransmissions of the last {@link #run}.
+     */
+    public RequestStatistics getStatistics() {
+        return statistics;
     }
 
     @Override
@@ -46,15 +83,131 @@ public class HelloUDPClient implements HelloClient {
             return;
         }
 
-        ExecutorService threadsPool = Executors.newFixedThreadPool(threads);
+        statistics = new RequestStatistics();
+        ExecutorService threadsPool = virtualThreads
+                ? MyUDPUtils.newThreadPerTaskExecutor(Math.min(threads, MAX_FALLBACK_THREADS))
+                : Executors.newFixedThreadPool(threads);
+        ByteBufferPool buffers = new ByteBufferPool();
 
         for (int threadNmb = 0; threadNmb < threads; threadNmb++) {
-            threadsPool.submit(new ClientThread(threadNmb, requests, serverAddress, prefix));
+            threadsPool.submit(new ClientThread(threadNmb, requests, serverAddress, prefix, buffers, statistics,
+                    virtualThreads));
         }
 
         MyUDPUtils.closeThreadPool(threadsPool, "Client");
     }
 
+    // Waiting for answer, pluggable so that virtual threads don't block their carrier in Selector.select
+    private interface Transport extends AutoCloseable {
+        void send(String request) throws IOException;
+
+        // Returns null if there was no datagram till deadline
+        String receive(long deadline) throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private static class SelectorTransport implements Transport {
+        private final DatagramChannel channel = DatagramChannel.open();
+        private final Selector selector = Selector.open();
+        private final SocketAddress serverAddress;
+        private final ByteBufferPool buffers;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+        private SelectorTransport(SocketAddress serverAddress, ByteBufferPool buffers) throws IOException {
+            this.serverAddress = serverAddress;
+            this.buffers = buffers;
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ);
+        }
+
+        @Override
+        public void send(String request) {
+            long maxSize = (long) (request.length() * (double) encoder.maxBytesPerChar());
+            if (maxSize > ByteBufferPool.MAX_DATAGRAM_SIZE) {
+                // Pool has no such buffers, and a request which doesn't fit in datagram is reported by send
+                MyUDPUtils.sendBuffer(channel, StandardCharsets.UTF_8.encode(request), serverAddress, "Client");
+                return;
+            }
+            ByteBuffer buffer = buffers.acquire((int) maxSize);
+            encoder.reset().encode(CharBuffer.wrap(request), buffer, true);
+            MyUDPUtils.sendBuffer(channel, buffer.flip(), serverAddress, "Client");
+            buffers.release(buffer);
+        }
+
+        @Override
+        public String receive(long deadline) throws IOException {
+            ByteBuffer buffer = buffers.acquire(ByteBufferPool.MAX_DATAGRAM_SIZE);
+            try {
+                while (channel.receive(buffer) == null) {
+                    long timeout = (deadline - System.nanoTime()) / 1_000_000;
+                    if (timeout <= 0) {
+                        return null;
+                    }
+                    selector.select(timeout);
+                    selector.selectedKeys().clear();
+                }
+                return StandardCharsets.UTF_8.decode(buffer.flip()).toString();
+            } finally {
+                buffers.release(buffer);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (channel) {
+                selector.close();
+            }
+        }
+    }
+
+    /**
+     * Blocking socket with timeout, which only parks a virtual thread.
+     * Receive buffer is sized after the request instead of max datagram, since there may be
+     * a hundred thousand receives waiting at once.
+     */
+    private static class SocketTransport implements Transport {
+        // Room for "Hello, " and digits replaced with up to 4 bytes long ones
+        private static final int ANSWER_HEADROOM = 256;
+
+        private final DatagramSocket socket = new DatagramSocket();
+        private final SocketAddress serverAddress;
+        private int answerSize;
+
+        private SocketTransport(SocketAddress serverAddress) throws SocketException {
+            this.serverAddress = serverAddress;
+        }
+
+        @Override
+        public void send(String request) {
+            byte[] bytes = request.getBytes(StandardCharsets.UTF_8);
+            answerSize = Math.min(ByteBufferPool.MAX_DATAGRAM_SIZE, 4 * bytes.length + ANSWER_HEADROOM);
+            MyUDPUtils.sendPacket(socket, new DatagramPacket(bytes, bytes.length, serverAddress), "Client");
+        }
+
+        @Override
+        public String receive(long deadline) throws IOException {
+            long timeout = (deadline - System.nanoTime()) / 1_000_000;
+            if (timeout <= 0) {
+                return null;
+            }
+            socket.setSoTimeout((int) timeout);
+            DatagramPacket packet = new DatagramPacket(new byte[answerSize], answerSize);
+            try {
+                socket.receive(packet);
+            } catch (SocketTimeoutException e) {
+                return null;
+            }
+            return new String(packet.getData(), packet.getOffset(), packet.getLength(), StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() {
+            socket.close();
+        }
+    }
+
     private static class ClientThread implements Runnable {
 
         private final int threadNmb;
@@ -62,64 +215,59 @@ public class HelloUDPClient implements HelloClient {
         private final String prefix;
         private int requestNmb = 0;
         private final SocketAddress serverAddress;
-        private int BUFF_SIZE;
+        private final ByteBufferPool buffers;
+        private final RequestStatistics statistics;
+        private final boolean blocking;
+        private final RttEstimator rtt = new RttEstimator();
 
         private String createRequestText() {
             return prefix + (threadNmb + 1) + "_" + (requestNmb + 1);
         }
 
-        private String preprocessAnswer(String string) {
-            StringBuilder sb = new StringBuilder();
-            for (char c : string.toCharArray()) {
-                if (Character.isDigit(c)) {
-                    sb.append(Character.getNumericValue(c));
-                } else {
-                    sb.append(c);
-                }
-            }
-            return sb.toString();
-        }
-
-        private boolean makeRequest(DatagramSocket socket) {
+        private void makeRequest(Transport transport) throws IOException {
             String request = createRequestText();
-            byte[] bytes = request.getBytes();
-            DatagramPacket packet = new DatagramPacket(bytes, bytes.length, serverAddress);
-            System.out.println(request);
-           if (!MyUDPUtils.sendPacket(socket, packet, "Client")) {
-                return false;
-            }
-            packet.setData(new byte[BUFF_SIZE]);
-            try {
-                socket.receive(packet);
-            } catch (IOException e) { // includes SocketTimeoutException
-                // waiting for answer
-                return false;
+            long start = System.nanoTime();
+            for (int attempt = 1; ; attempt++) {
+                long sent = System.nanoTime();
+                System.out.println(request);
+                transport.send(request);
+                long deadline = sent + rtt.timeout(attempt);
+                String answer;
+                // Late answers to previous requests are skipped without retransmission
+                while ((answer = transport.receive(deadline)) != null) {
+                    System.out.println(answer);
+                    if (MyUDPUtils.preprocessAnswer(answer).contains(request)) {
+                        long received = System.nanoTime();
+                        if (attempt == 1) {
+                            rtt.sample(received - sent);
+                        }
+                        statistics.record(received - start, attempt - 1);
+                        return;
+                    }
+                }
             }
-            String answer = new String(packet.getData(), packet.getOffset(),
-                    packet.getLength(), StandardCharsets.UTF_8);
-            System.out.println(answer);
-            return preprocessAnswer(answer).contains(request);
         }
 
-        public ClientThread(int threadNmb, int requests, SocketAddress serverAddress, String prefix) {
+        public ClientThread(int threadNmb, int requests, SocketAddress serverAddress, String prefix,
+                            ByteBufferPool buffers, RequestStatistics statistics, boolean blocking) {
             this.threadNmb = threadNmb;
             this.requests = requests;
             this.serverAddress = serverAddress;
             this.prefix = prefix;
+            this.buffers = buffers;
+            this.statistics = statistics;
+            this.blocking = blocking;
         }
 
         @Override
         public void run() {
-            try (DatagramSocket socket = new DatagramSocket()) {
-                BUFF_SIZE = socket.getReceiveBufferSize();
-                socket.setSoTimeout(SOCKET_TIMEOUT);
+            try (Transport transport = blocking
+                    ? new SocketTransport(serverAddress)
+                    : new SelectorTransport(serverAddress, buffers)) {
                 for (requestNmb = 0; requestNmb < requests; requestNmb++) {
-                    while (!makeRequest(socket)) {
-                        // Continue making requests
-                    }
+                    makeRequest(transport);
                 }
-
-            } catch (SocketException e) {
+            } catch (IOException e) {
                 System.err.println("Can't connect to server: " + e.getMessage());
             }
         }
@@ -0,0 +1,194 @@
+package info.kgeorgiy.ja.kasatov.hello;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client mode for load testing: requests are sent at a fixed rate for a fixed time regardless of answers,
+ * nothing is printed per request, and unanswered requests are counted as lost instead of being sent again.
+ * <p>
+ * Latency is measured from the moment when request was due, not when it was actually sent,
+ * so that stalls of the sender are not hidden from percentiles (coordinated omission).
+ */
+public class HelloUDPLoadGenerator {
+    private static final long GRACE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Result of a run; {@code lost} requests weren't answered within a second after the run.
+     */
+    public record Result(long sent, long answered, long elapsedNanos, LatencyHistogram latencies) {
+        public long lost() {
+            return sent - answered;
+        }
+
+        public double sentPerSecond() {
+            return sent / (elapsedNanos / 1e9);
+        }
+
+        public double answeredPerSecond() {
+            return answered / (elapsedNanos / 1e9);
+        }
+
+        public String summary() {
+            return String.format("sent: %d (%.0f pps), answered: %d (%.0f pps), lost: %d (%.2f%%), latency %s",
+                    sent, sentPerSecond(), answered, answeredPerSecond(), lost(),
+                    sent == 0 ? 0.0 : 100.0 * lost() / sent, latencies.summary());
+        }
+    }
+
+    // Usage: HelloUDPLoadGenerator <host> <port> <requests per second> <seconds> [prefix]
+    public static void main(String[] args) {
+        if (args == null || Arrays.stream(args).anyMatch(Objects::isNull) || (args.length != 4 && args.length != 5)) {
+            System.err.println("Incorrect arguments");
+            return;
+        }
+        Result result = new HelloUDPLoadGenerator().run(
+                args[0],
+                Integer.parseInt(args[1]),
+                args.length == 5 ? args[4] : "load_",
+                Integer.parseInt(args[2]),
+                Integer.parseInt(args[3])
+        );
+        if (result != null) {
+            System.out.println(result.summary());
+        }
+    }
+
+    /**
+     * Sends {@code rate} requests per second for {@code seconds}.
+     *
+     * @return result or {@code null} if server can't be reached
+     */
+    public Result run(String host, int port, String prefix, int rate, int seconds) {
+        if (rate <= 0 || seconds <= 0) {
+            throw new IllegalArgumentException("Rate and duration must be positive");
+        }
+        SocketAddress serverAddress;
+        try {
+            serverAddress = new InetSocketAddress(InetAddress.getByName(host), port);
+        } catch (UnknownHostException e) {
+            System.err.println("Can't resolve host: " + e.getMessage());
+            return null;
+        }
+        try (DatagramChannel channel = DatagramChannel.open(); Selector selector = Selector.open()) {
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ);
+            return new Run(channel, selector, serverAddress, prefix, rate, seconds).run();
+        } catch (IOException e) {
+            System.err.println("Can't connect to server: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static class Run {
+        private final DatagramChannel channel;
+        private final Selector selector;
+        private final SocketAddress serverAddress;
+        private final String prefix;
+        private final byte[] prefixBytes;
+        private final long interval;
+        private final long duration;
+        // Due time of request seq is dueTimes[seq & mask], if requests[seq & mask] == seq
+        private final long[] dueTimes;
+        private final long[] requests;
+        private final int mask;
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(ByteBufferPool.MAX_DATAGRAM_SIZE);
+        private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(ByteBufferPool.MAX_DATAGRAM_SIZE);
+        private long answered;
+
+        private Run(DatagramChannel channel, Selector selector, SocketAddress serverAddress,
+                    String prefix, int rate, int seconds) {
+            this.channel = channel;
+            this.selector = selector;
+            this.serverAddress = serverAddress;
+            this.prefix = prefix;
+            this.prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+            this.interval = TimeUnit.SECONDS.toNanos(1) / rate;
+            this.duration = TimeUnit.SECONDS.toNanos(seconds);
+            // Enough to remember all requests sent during grace period
+            int capacity = Integer.highestOneBit(Math.max(1, (int) Math.min(1 << 24, 2L * rate))) << 1;
+            this.dueTimes = new long[capacity];
+            this.requests = new long[capacity];
+            Arrays.fill(requests, -1);
+            this.mask = capacity - 1;
+        }
+
+        private Result run() throws IOException {
+            long start = System.nanoTime();
+            long seq = 0;
+            while (true) {
+                long now = System.nanoTime();
+                while (now - start < duration && seq * interval <= now - start) {
+                    send(seq, start + seq * interval);
+                    seq++;
+                }
+                long sinceStart = now - start;
+                if (sinceStart >= duration && (answered == seq || sinceStart >= duration + GRACE_NANOS)) {
+                    return new Result(seq, answered, Math.min(sinceStart, duration), latencies);
+                }
+
+                long nextEvent = sinceStart < duration ? seq * interval : duration + GRACE_NANOS;
+                long timeout = (nextEvent - sinceStart) / 1_000_000;
+                // Rates above a request per millisecond are kept by spinning
+                int ready = timeout > 0 ? selector.select(timeout) : selector.selectNow();
+                if (ready > 0) {
+                    selector.selectedKeys().clear();
+                    receiveAll();
+                }
+            }
+        }
+
+        private void send(long seq, long dueTime) throws IOException {
+            sendBuffer.clear();
+            sendBuffer.put(prefixBytes).put(Long.toString(seq).getBytes(StandardCharsets.US_ASCII)).flip();
+            dueTimes[(int) (seq & mask)] = dueTime;
+            requests[(int) (seq & mask)] = seq;
+            // Datagram which didn't fit into socket buffer is counted as lost
+            channel.send(sendBuffer, serverAddress);
+        }
+
+        private void receiveAll() throws IOException {
+            while (true) {
+                receiveBuffer.clear();
+                if (channel.receive(receiveBuffer) == null) {
+                    return;
+                }
+                long received = System.nanoTime();
+                long seq = parseSeq(StandardCharsets.UTF_8.decode(receiveBuffer.flip()).toString());
+                if (seq >= 0 && requests[(int) (seq & mask)] == seq) {
+                    // Duplicate answers are ignored
+                    requests[(int) (seq & mask)] = -1;
+                    answered++;
+                    latencies.record(received - dueTimes[(int) (seq & mask)]);
+                }
+            }
+        }
+
+        // Returns number which follows the last occurrence of prefix or -1
+        private long parseSeq(String answer) {
+            String normalized = MyUDPUtils.preprocessAnswer(answer);
+            int i = normalized.lastIndexOf(prefix);
+            if (i < 0) {
+                return -1;
+            }
+            i += prefix.length();
+            int end = i;
+            while (end < normalized.length() && end - i < 18 && Character.isDigit(normalized.charAt(end))) {
+                end++;
+            }
+            return end == i ? -1 : Long.parseLong(normalized, i, end, 10);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package info.kgeorgiy.ja.kasatov.hello;
+
+import info.kgeorgiy.java.advanced.hello.HelloServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * UDP server built on {@link DatagramChannel} and {@link Selector}.
+ * One thread waits for readiness of all channels without timeouts, requests are answered in a pool
+ * and answers are sent back by the selector thread when channel is ready for writing.
+ * <p>
+ * Datagrams are received and answered in batches: a readable channel is drained into
+ * a batch which goes to one worker, and queued answers are sent in one burst.
+ */
+public class HelloUDPNonblockingServer implements HelloServer {
+    private final ByteBufferPool buffers = new ByteBufferPool();
+    private static final int BATCH_SIZE = 64;
+
+    private Selector selector;
+    private ExecutorService threadsPool;
+    private Thread selectorThread;
+    private final List<DatagramChannel> channels = new ArrayList<>();
+
+    /**
+     * Runs {@link HelloUDPNonblockingServer#start(int, int)} with arguments.
+     * @param args must contain: <br>
+     *              номер порта, по которому будут приниматься запросы; <br>
+     *              число рабочих потоков, которые будут обрабатывать запросы.
+     *              Server works until standard input is closed.
+     */
+    public static void main(String[] args) {
+        if (args == null || Arrays.stream(args).anyMatch(Objects::isNull) || args.length != 2) {
+            System.err.println("Incorrect arguments");
+            return;
+        }
+        try (HelloUDPNonblockingServer server = new HelloUDPNonblockingServer()) {
+            server.start(
+                    Integer.parseInt(args[0]),
+                    Integer.parseInt(args[1])
+            );
+            while (System.in.read() >= 0) {
+                // Input is ignored, only its end matters
+            }
+        } catch (IOException e) {
+            System.err.println("Can't read standard input: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void start(int port, int threads) {
+        start(new int[]{port}, threads);
+    }
+
+    /**
+     * Starts server on several ports at once, all channels are served by one selector.
+     *
+     * @param ports   ports to listen
+     * @param threads number of threads which build answers
+     */
+    public void start(int[] ports, int threads) {
+        try {
+            selector = Selector.open();
+            for (int port : ports) {
+                DatagramChannel channel = DatagramChannel.open();
+                channels.add(channel);
+                channel.bind(new InetSocketAddress(port));
+                channel.configureBlocking(false);
+                channel.register(selector, SelectionKey.OP_READ, new ChannelContext(channel));
+            }
+        } catch (IOException e) {
+            System.err.println("Can't configure channels on server: " + e.getMessage());
+            closeChannels();
+            return;
+        }
+        threadsPool = Executors.newFixedThreadPool(threads);
+        selectorThread = new Thread(this::selectLoop);
+        selectorThread.start();
+    }
+
+    private record Datagram(ByteBuffer data, SocketAddress address) {
+    }
+
+    private class ChannelContext {
+        private final DatagramChannel channel;
+        private final Queue<Datagram> responses = new ConcurrentLinkedQueue<>();
+        // Used only by selector thread, datagram is copied to a right-sized pooled buffer
+        private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(ByteBufferPool.MAX_DATAGRAM_SIZE);
+
+        private ChannelContext(DatagramChannel channel) {
+            this.channel = channel;
+        }
+
+        // Drains up to BATCH_SIZE datagrams, so that one task and one wakeup serve all of them
+        private void receive(SelectionKey key) {
+            List<Datagram> batch = new ArrayList<>();
+            try {
+                while (batch.size() < BATCH_SIZE) {
+                    receiveBuffer.clear();
+                    SocketAddress address = channel.receive(receiveBuffer);
+                    if (address == null) {
+                        break;
+                    }
+                    batch.add(new Datagram(buffers.copyOf(receiveBuffer.flip()), address));
+                }
+            } catch (IOException e) {
+                System.err.println("Exception occurred while receiving datagram from client: "
+                        + e.getMessage());
+            }
+            if (!batch.isEmpty()) {
+                threadsPool.submit(() -> respond(key, batch));
+            }
+        }
+
+        private void respond(SelectionKey key, List<Datagram> batch) {
+            for (Datagram request : batch) {
+                responses.add(new Datagram(answer(request.data()), request.address()));
+            }
+            try {
+                key.interestOpsOr(SelectionKey.OP_WRITE);
+                selector.wakeup();
+            } catch (CancelledKeyException e) {
+                // Server is closed
+            }
+        }
+
+        // Flushes all queued answers while socket buffer has space
+        private void send(SelectionKey key) {
+            Datagram response;
+            while ((response = responses.peek()) != null) {
+                try {
+                    if (channel.send(response.data(), response.address()) == 0) {
+                        // No space in socket buffer, wait for next readiness
+                        return;
+                    }
+                } catch (IOException e) {
+                    System.err.println("Can't send packet from Server: " + e.getMessage());
+                }
+                buffers.release(responses.remove().data());
+            }
+            key.interestOpsAnd(~SelectionKey.OP_WRITE);
+            // Worker could add response after queue was found empty
+            if (!responses.isEmpty()) {
+                key.interestOpsOr(SelectionKey.OP_WRITE);
+            }
+        }
+    }
+
+    private void selectLoop() {
+        try {
+            while (!Thread.interrupted()) {
+                selector.select();
+                for (Iterator<SelectionKey> i = selector.selectedKeys().iterator(); i.hasNext(); ) {
+                    SelectionKey key = i.next();
+                    i.remove();
+                    ChannelContext context = (ChannelContext) key.attachment();
+                    if (key.isValid() && key.isReadable()) {
+                        context.receive(key);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        context.send(key);
+                    }
+                }
+            }
+        } catch (ClosedSelectorException e) {
+            // Server is closed
+        } catch (IOException e) {
+            System.err.println("Selector failed on server: " + e.getMessage());
+        }
+    }
+
+    private ByteBuffer answer(ByteBuffer request) {
+        ByteBuffer response = MyUDPUtils.buildAnswer(request, buffers);
+        buffers.release(request);
+        return response;
+    }
+
+    private void closeChannels() {
+        for (DatagramChannel channel : channels) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Can't close server channel: " + e.getMessage());
+            }
+        }
+        channels.clear();
+        if (selector != null) {
+            try {
+                selector.close();
+            } catch (IOException e) {
+                System.err.println("Can't close server selector: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (selectorThread != null) {
+            selectorThread.interrupt();
+            selector.wakeup();
+            try {
+                selectorThread.join();
+            } catch (InterruptedException e) {
+                System.err.println("Server selector thread wasn't terminated correctly: " + e.getMessage());
+            }
+        }
+        if (threadsPool != null) {
+            threadsPool.shutdownNow();
+            MyUDPUtils.closeThreadPool(threadsPool, "Server");
+        }
+        closeChannels();
+    }
+}
@@ -0,0 +1,207 @@
+package info.kgeorgiy.ja.kasatov.hello;
+
+import info.kgeorgiy.java.advanced.hello.HelloClient;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Client which keeps up to {@code window} requests in flight on one non-blocking channel, served by one thread.
+ * Answers are matched to requests by request text, requests without answer are sent again after
+ * timeout given by {@link RttEstimator}.
+ * Requests of all {@code threads} are interleaved, so requests of one thread may be answered out of order.
+ */
+public class HelloUDPPipelinedClient implements HelloClient {
+    private static final int DEFAULT_WINDOW = 32;
+
+    private final int window;
+    private RequestStatistics statistics = new RequestStatistics();
+
+    public HelloUDPPipelinedClient() {
+        this(DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param window max amount of requests without answer
+     */
+    public HelloUDPPipelinedClient(int window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("Window must be positive");
+        }
+        this.window = window;
+    }
+
+    /**
+     * Runs {@link HelloUDPPipelinedClient#run(String, int, String, int, int)} with arguments.
+     * @param args must contain: <br>
+     *             имя или ip-адрес компьютера, на котором запущен сервер; <br>
+     *             номер порта, на который отсылать запросы; <br>
+     *             префикс запросов (строка); <br>
+     *             число параллельных потоков запросов; <br>
+     *             число запросов в каждом потоке; <br>
+     *             необязательный размер окна неотвеченных запросов.
+     */
+    public static void main(String[] args) {
+        if (args == null || Arrays.stream(args).anyMatch(Objects::isNull) || (args.length != 5 && args.length != 6)) {
+            System.err.println("Incorrect arguments");
+            return;
+        }
+        HelloUDPPipelinedClient client = new HelloUDPPipelinedClient(
+                args.length == 6 ? Integer.parseInt(args[5]) : DEFAULT_WINDOW);
+        client.run(
+                args[0],
+                Integer.parseInt(args[1]),
+                args[2],
+                Integer.parseInt(args[3]),
+                Integer.parseInt(args[4])
+        );
+        System.err.println(client.getStatistics().summary());
+    }
+
+    /**
+     * Returns latencies and retransmissions of the last {@link #run}.
+     */
+    public RequestStatistics getStatistics() {
+        return statistics;
+    }
+
+    private static class Pending {
+        private final String request;
+        private final long created = System.nanoTime();
+        private long sent;
+        private long deadline;
+        private int attempts;
+
+        private Pending(String request) {
+            this.request = request;
+        }
+    }
+
+    @Override
+    public void run(String host, int port, String prefix, int threads, int requests) {
+        SocketAddress serverAddress;
+        try {
+            serverAddress = new InetSocketAddress(InetAddress.getByName(host), port);
+        } catch (UnknownHostException e) {
+            System.err.println("Can't resolve host: " + e.getMessage());
+            return;
+        }
+        statistics = new RequestStatistics();
+        try (DatagramChannel channel = DatagramChannel.open(); Selector selector = Selector.open()) {
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ);
+            new EventLoop(channel, selector, serverAddress, prefix, threads, requests).run();
+        } catch (IOException e) {
+            System.err.println("Can't connect to server: " + e.getMessage());
+        }
+    }
+
+    private class EventLoop {
+        private final DatagramChannel channel;
+        private final Selector selector;
+        private final SocketAddress serverAddress;
+        private final String prefix;
+        private final int threads;
+        private final int total;
+        // Request id is "<thread>_<request>" right after prefix and not followed by another digit
+        private final Pattern requestId;
+        private final Map<String, Pending> pending = new HashMap<>();
+        private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(ByteBufferPool.MAX_DATAGRAM_SIZE);
+        private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(ByteBufferPool.MAX_DATAGRAM_SIZE);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        // Requests of all threads share the path to server, so they share the estimation
+        private final RttEstimator rtt = new RttEstimator();
+        private int sent = 0;
+
+        private EventLoop(DatagramChannel channel, Selector selector, SocketAddress serverAddress,
+                          String prefix, int threads, int requests) {
+            this.channel = channel;
+            this.selector = selector;
+            this.serverAddress = serverAddress;
+            this.prefix = prefix;
+            this.threads = threads;
+            this.total = threads * requests;
+            this.requestId = Pattern.compile(Pattern.quote(prefix) + "\\d+_\\d+(?!\\d)");
+        }
+
+        private String createRequestText(int index) {
+            return prefix + (index % threads + 1) + "_" + (index / threads + 1);
+        }
+
+        private void run() throws IOException {
+            while (sent < total || !pending.isEmpty()) {
+                while (pending.size() < window && sent < total) {
+                    Pending request = new Pending(createRequestText(sent++));
+                    pending.put(request.request, request);
+                    send(request);
+                }
+
+                long now = System.nanoTime();
+                long nextDeadline = Long.MAX_VALUE;
+                for (Pending request : pending.values()) {
+                    if (request.deadline - now <= 0) {
+                        send(request);
+                    }
+                    nextDeadline = Math.min(nextDeadline, request.deadline);
+                }
+
+                // select(0) would wait forever
+                long timeout = Math.max(1, (nextDeadline - System.nanoTime()) / 1_000_000);
+                if (selector.select(timeout) > 0) {
+                    selector.selectedKeys().clear();
+                    receiveAll();
+                }
+            }
+        }
+
+        private void send(Pending request) throws IOException {
+            System.out.println(request.request);
+            sendBuffer.clear();
+            encoder.reset().encode(CharBuffer.wrap(request.request), sendBuffer, true);
+            // Datagram which didn't fit into socket buffer is lost like any other one
+            channel.send(sendBuffer.flip(), serverAddress);
+            request.attempts++;
+            request.sent = System.nanoTime();
+            request.deadline = request.sent + rtt.timeout(request.attempts);
+        }
+
+        private void receiveAll() throws IOException {
+            while (true) {
+                receiveBuffer.clear();
+                if (channel.receive(receiveBuffer) == null) {
+                    return;
+                }
+                String answer = StandardCharsets.UTF_8.decode(receiveBuffer.flip()).toString();
+                Matcher matcher = requestId.matcher(MyUDPUtils.preprocessAnswer(answer));
+                while (matcher.find()) {
+                    Pending request = pending.remove(matcher.group());
+                    if (request != null) {
+                        long received = System.nanoTime();
+                        if (request.attempts == 1) {
+                            rtt.sample(received - request.sent);
+                        }
+                        statistics.record(received - request.created, request.attempts - 1);
+                        System.out.println(answer);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -3,26 +3,109 @@ package info.kgeorgiy.ja.kasatov.hello;
 import info.kgeorgiy.java.advanced.hello.HelloServer;
 
 import java.io.IOException;
-import java.net.*;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class HelloUDPServer implements HelloServer {
-    private static final int SOCKET_TIMEOUT = 100;
-    private ExecutorService threadsPool;
-    private DatagramSocket socket;
-    private Thread mainThread;
+    private static final int DEFAULT_QUEUE_CAPACITY = 1 << 14;
+
+    /**
+     * What to drop when workers can't keep up.
+     */
+    public enum DropPolicy {
+        /**
+         * Received datagram is dropped if queue is full.
+         */
+        NEWEST,
+        /**
+         * The longest waiting datagram is dropped to make room for received one.
+         */
+        OLDEST,
+        /**
+         * Like {@link #NEWEST}, and also datagrams which waited in queue longer than deadline are
+         * dropped by workers, since client has most likely sent them again.
+         */
+        DEADLINE
+    }
+
+    private final ByteBufferPool buffers = new ByteBufferPool();
+    private final ServerStatistics statistics = new ServerStatistics();
+    private final List<Shard> shards = new ArrayList<>();
+    private final boolean virtualThreads;
+    private final int queueCapacity;
+    private final DropPolicy dropPolicy;
+    private final long deadlineNanos;
+
+    public HelloUDPServer() {
+        this(false);
+    }
+
+    /**
+     * @param virtualThreads whether every datagram is answered in its own virtual thread
+     *                       instead of a fixed pool of {@code threads}
+     */
+    public HelloUDPServer(boolean virtualThreads) {
+        this(virtualThreads, DEFAULT_QUEUE_CAPACITY, DropPolicy.NEWEST, 0);
+    }
+
+    /**
+     * @param queueCapacity  max amount of datagrams waiting for workers of one shard
+     * @param dropPolicy     what is dropped when queue is full
+     * @param deadlineMillis max time in queue for {@link DropPolicy#DEADLINE}
+     */
+    public HelloUDPServer(int queueCapacity, DropPolicy dropPolicy, long deadlineMillis) {
+        this(false, queueCapacity, dropPolicy, deadlineMillis);
+    }
+
+    /**
+     * Queue and drop policy are applied the same way with virtual threads,
+     * a task is started for every datagram which got into queue.
+     * @see #HelloUDPServer(int, DropPolicy, long)
+     */
+    public HelloUDPServer(boolean virtualThreads, int queueCapacity, DropPolicy dropPolicy, long deadlineMillis) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive");
+        }
+        if (dropPolicy == DropPolicy.DEADLINE && deadlineMillis <= 0) {
+            throw new IllegalArgumentException("Deadline must be positive");
+        }
+        this.virtualThreads = virtualThreads;
+        this.queueCapacity = queueCapacity;
+        this.dropPolicy = Objects.requireNonNull(dropPolicy);
+        this.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+    }
+
+    /**
+     * Returns counters of all shards, which keep growing till the server is garbage.
+     */
+    public ServerStatistics getStatistics() {
+        return statistics;
+    }
 
     /**
      * Runs {@link HelloUDPServer#start(int, int)} with arguments.
      * @param args must contain: <br>
      *              номер порта, по которому будут приниматься запросы; <br>
-     *              число рабочих потоков, которые будут обрабатывать запросы.
+     *              число рабочих потоков, которые будут обрабатывать запросы; <br>
+     *              необязательное число сокетов на порту, см. {@link HelloUDPServer#start(int, int, int)}.
+     *              Server works until standard input is closed, then prints its statistics.
      */
     public static void main(String[] args) {
-        if (args == null || Arrays.stream(args).anyMatch(Objects::isNull) || args.length != 2) {
+        if (args == null || Arrays.stream(args).anyMatch(Objects::isNull) || (args.length != 2 && args.length != 3)) {
             System.err.println("Incorrect arguments");
             return;
         }
@@ -30,66 +113,202 @@ public class HelloUDPServer implements HelloServer {
             // :NOTE: не ловится NumberFormatException, хотим ловить + вынести метод в Utils
             server.start(
                     Integer.parseInt(args[0]),
-                    Integer.parseInt(args[1])
+                    Integer.parseInt(args[1]),
+                    args.length == 3 ? Integer.parseInt(args[2]) : 1
             );
+            while (System.in.read() >= 0) {
+                // Input is ignored, only its end matters
+            }
+            System.err.println(server.getStatistics().summary());
+        } catch (IOException e) {
+            System.err.println("Can't read standard input: " + e.getMessage());
         }
     }
 
     @Override
     public void start(int port, int threads) {
-        this.threadsPool = Executors.newFixedThreadPool(threads);
-        mainThread = new Thread(new MainThread(port));
-        mainThread.start();
+        start(port, threads, 1);
     }
 
-    private class MainThread implements Runnable {
-        private final int port;
-        public MainThread(int port) {
-            this.port = port;
+    /**
+     * Starts server with {@code shards} channels bound to the same port with {@code SO_REUSEPORT}.
+     * Kernel spreads datagrams between channels, every channel has its own receiving thread and
+     * its own part of {@code threads} workers. Where {@code SO_REUSEPORT} isn't supported, one channel is used.
+     * There are no more channels than {@code threads}, since every channel needs a worker.
+     */
+    public void start(int port, int threads, int shards) {
+        shards = Math.max(1, Math.min(shards, threads));
+        try (DatagramChannel probe = DatagramChannel.open()) {
+            if (shards > 1 && !probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+                System.err.println("SO_REUSEPORT isn't supported, server uses one socket");
+                shards = 1;
+            }
+        } catch (IOException e) {
+            System.err.println("Can't configure socket on server: " + e.getMessage());
+            return;
         }
-
-        @Override
-        public void run() {
+        for (int i = 0; i < shards; i++) {
+            int workers = Math.max(1, threads / shards + (i < threads % shards ? 1 : 0));
             try {
-                socket = new DatagramSocket(port);
-                socket.setSoTimeout(SOCKET_TIMEOUT);
-                while (!Thread.interrupted()) {
-                    byte[] buff = new byte[socket.getReceiveBufferSize()];
-                    DatagramPacket packet = new DatagramPacket(buff, buff.length);
-                    try {
-                        socket.receive(packet);
-                        threadsPool.submit(() -> answer(packet));
-                    } catch (SocketTimeoutException e) {
-                        // Waiting for clients
-                    } catch (IOException e) {
-                        System.err.println("Exception occurred while receiving datagram from client: "
-                                + e.getMessage());
-                    }
+                DatagramChannel channel = DatagramChannel.open();
+                this.shards.add(new Shard(channel, workers));
+                if (shards > 1) {
+                    channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
                 }
-                Thread.currentThread().interrupt();
-            } catch (SocketException e) {
+                channel.bind(new InetSocketAddress(port));
+                // Port 0 picks a free port for the first shard, others join it
+                port = ((InetSocketAddress) channel.getLocalAddress()).getPort();
+            } catch (IOException e) {
                 System.err.println("Can't configure socket on server: " + e.getMessage());
+                close();
+                return;
             }
         }
+        this.shards.forEach(shard -> shard.receiveThread.start());
     }
 
-    private void answer(DatagramPacket packet) {
-        String request = new String(packet.getData(), packet.getOffset(), packet.getLength());
-        String answer = "Hello, " + request;
-        packet.setData(answer.getBytes());
-        MyUDPUtils.sendPacket(socket, packet, "Server");
+    // Receive is blocking, close() interrupts the thread which closes the channel
+    private class Shard implements Runnable {
+        private final DatagramChannel channel;
+        private final ExecutorService threadsPool;
+        private final Thread receiveThread = new Thread(this);
+        private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(ByteBufferPool.MAX_DATAGRAM_SIZE);
+        // With virtual threads datagrams wait here, and every task takes one of them,
+        // so that there are never more tasks than waiting datagrams
+        private final BlockingQueue<Request> waiting;
+
+        private Shard(DatagramChannel channel, int threads) {
+            this.channel = channel;
+            if (virtualThreads) {
+                this.threadsPool = MyUDPUtils.newThreadPerTaskExecutor(threads);
+                this.waiting = new ArrayBlockingQueue<>(queueCapacity);
+            } else {
+                this.waiting = null;
+                RejectedExecutionHandler handler = dropPolicy == DropPolicy.OLDEST
+                        ? this::dropOldest
+                        : (request, executor) -> discard(request);
+                this.threadsPool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(queueCapacity), handler);
+            }
+        }
+
+        private class Request implements Runnable {
+            private final ByteBuffer data;
+            private final SocketAddress address;
+            private final long received = System.nanoTime();
+
+            private Request(ByteBuffer data, SocketAddress address) {
+                this.data = data;
+                this.address = address;
+            }
+
+            @Override
+            public void run() {
+                statistics.queueLeft();
+                if (dropPolicy == DropPolicy.DEADLINE && System.nanoTime() - received > deadlineNanos) {
+                    drop();
+                    return;
+                }
+                ByteBuffer response = MyUDPUtils.buildAnswer(data, buffers);
+                buffers.release(data);
+                MyUDPUtils.sendBuffer(channel, response, address, "Server");
+                buffers.release(response);
+                statistics.answered(System.nanoTime() - received);
+            }
+
+            private void drop() {
+                buffers.release(data);
+                statistics.dropped();
+            }
+        }
+
+        private void discard(Runnable request) {
+            statistics.queueLeft();
+            ((Request) request).drop();
+        }
+
+        private void dropOldest(Runnable request, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                discard(request);
+                return;
+            }
+            Runnable oldest = executor.getQueue().poll();
+            if (oldest != null) {
+                discard(oldest);
+            }
+            executor.execute(request);
+        }
+
+        private void submit(Request request) {
+            if (waiting == null) {
+                threadsPool.execute(request);
+                return;
+            }
+            if (!waiting.offer(request)) {
+                Request oldest = dropPolicy == DropPolicy.OLDEST ? waiting.poll() : null;
+                if (oldest == null) {
+                    discard(request);
+                    return;
+                }
+                discard(oldest);
+                // Only this thread adds to queue, and the task started for the dropped datagram takes this one
+                waiting.add(request);
+                return;
+            }
+            threadsPool.execute(() -> {
+                Request next = waiting.poll();
+                if (next != null) {
+                    next.run();
+                }
+            });
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.interrupted()) {
+                receiveBuffer.clear();
+                try {
+                    SocketAddress address = channel.receive(receiveBuffer);
+                    statistics.received();
+                    statistics.queueEntered();
+                    submit(new Request(buffers.copyOf(receiveBuffer.flip()), address));
+                } catch (AsynchronousCloseException e) {
+                    // Server is closed
+                    return;
+                } catch (IOException e) {
+                    System.err.println("Exception occurred while receiving datagram from client: "
+                            + e.getMessage());
+                }
+            }
+        }
+
+        private void close() {
+            receiveThread.interrupt();
+            try {
+                receiveThread.join();
+            } catch (InterruptedException e) {
+                System.err.println("Server main thread wasn't terminated correctly: " + e.getMessage());
+            }
+            List<Runnable> notStarted = threadsPool.shutdownNow();
+            if (waiting == null) {
+                notStarted.forEach(this::discard);
+            } else {
+                List<Request> left = new ArrayList<>();
+                waiting.drainTo(left);
+                left.forEach(this::discard);
+            }
+            MyUDPUtils.closeThreadPool(threadsPool, "Server");
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Can't close server channel: " + e.getMessage());
+            }
+        }
     }
 
     @Override
     public void close() {
-        mainThread.interrupt();
-        try {
-            mainThread.join();
-        } catch (InterruptedException e) {
-            System.err.println("Server main thread wasn't terminated correctly: " + e.getMessage());
-        }
-        threadsPool.shutdownNow();
-        MyUDPUtils.closeThreadPool(threadsPool, "Server");
-        socket.close();
+        shards.forEach(Shard::close);
+        shards.clear();
     }
 }
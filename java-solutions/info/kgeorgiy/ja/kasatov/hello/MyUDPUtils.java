@@ -3,11 +3,17 @@ package info.kgeorgiy.ja.kasatov.hello;
 import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
-import java.net.SocketException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 public class MyUDPUtils {
+    private static final byte[] ANSWER_PREFIX = "Hello, ".getBytes(StandardCharsets.UTF_8);
+
     public static void closeThreadPool(ExecutorService threadsPool, String blockName) {
         try {
             threadsPool.shutdown();
@@ -19,6 +25,29 @@ public class MyUDPUtils {
         }
     }
 
+    /**
+     * Whether the runtime has virtual threads, which appeared in Java 21.
+     */
+    public static final boolean VIRTUAL_THREADS_SUPPORTED = Runtime.version().feature() >= 21;
+
+    /**
+     * Returns executor which runs every task in a new virtual thread.
+     * Runtimes without virtual threads get a fixed pool of {@code threads} platform threads instead,
+     * so that thread count stays bounded.
+     */
+    public static ExecutorService newThreadPerTaskExecutor(int threads) {
+        if (VIRTUAL_THREADS_SUPPORTED) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("Can't create virtual threads: " + e.getMessage());
+            }
+        } else {
+            System.err.println("Virtual threads aren't supported, " + threads + " platform threads are used");
+        }
+        return Executors.newFixedThreadPool(threads);
+    }
+
     public static boolean sendPacket(DatagramSocket socket, DatagramPacket packet, String blockName) {
         try {
             socket.send(packet);
@@ -28,4 +57,42 @@ public class MyUDPUtils {
             return false;
         }
     }
+
+    public static boolean sendBuffer(DatagramChannel channel, ByteBuffer buffer, SocketAddress address,
+                                     String blockName) {
+        try {
+            channel.send(buffer, address);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Can't send packet from " + blockName + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Returns answer to {@code request} in a buffer from {@code buffers}, ready for sending.
+     * Request bytes are copied after the encoded prefix as is, so no decoding or strings are needed.
+     * Request buffer is consumed but not released.
+     */
+    public static ByteBuffer buildAnswer(ByteBuffer request, ByteBufferPool buffers) {
+        return buffers.acquire(ANSWER_PREFIX.length + request.remaining())
+                .put(ANSWER_PREFIX)
+                .put(request)
+                .flip();
+    }
+
+    /**
+     * Replaces digits of any script with ASCII ones.
+     */
+    public static String preprocessAnswer(String string) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : string.toCharArray()) {
+            if (Character.isDigit(c)) {
+                sb.append(Character.getNumericValue(c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
 }
@@ -0,0 +1,48 @@
+package info.kgeorgiy.ja.kasatov.hello;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-request results of a client run: latency from the first send till the correct answer
+ * and number of retransmissions. Thread-safe.
+ */
+public class RequestStatistics {
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+
+    public void record(long latencyNanos, int requestRetries) {
+        latencies.record(latencyNanos);
+        retries.add(requestRetries);
+        if (requestRetries > 0) {
+            retried.increment();
+        }
+    }
+
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    public long getAnswered() {
+        return latencies.getCount();
+    }
+
+    /**
+     * Returns total amount of retransmissions.
+     */
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * Returns amount of requests which needed at least one retransmission.
+     */
+    public long getRetried() {
+        return retried.sum();
+    }
+
+    public String summary() {
+        return String.format("answered: %d, retransmissions: %d (%d requests retried), latency %s",
+                getAnswered(), getRetries(), getRetried(), latencies.summary());
+    }
+}
@@ -0,0 +1,53 @@
+package info.kgeorgiy.ja.kasatov.hello;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retransmission timeout of one request stream, computed like in TCP (RFC 6298):
+ * {@code RTO = SRTT + 4 * RTTVAR}, where SRTT and RTTVAR are smoothed round-trip time and its deviation.
+ * <p>
+ * Only requests answered on the first attempt may be sampled (Karn's rule), since an answer
+ * to a retransmitted request can't be attributed to one send. Every retransmission doubles the timeout,
+ * and the result is jittered so that clients which lost packets together don't retry together.
+ * Not thread-safe.
+ */
+public class RttEstimator {
+    private static final long INITIAL_TIMEOUT = 100_000_000;
+    private static final long MIN_TIMEOUT = 2_000_000;
+    private static final long MAX_TIMEOUT = 2_000_000_000;
+    private static final int MAX_BACKOFF_SHIFT = 10;
+    private static final double JITTER = 0.25;
+
+    private long smoothedRtt = -1;
+    private long rttVariation;
+    private long timeout = INITIAL_TIMEOUT;
+
+    /**
+     * Adds round-trip time of a request which wasn't retransmitted.
+     */
+    public void sample(long rttNanos) {
+        if (smoothedRtt < 0) {
+            smoothedRtt = rttNanos;
+            rttVariation = rttNanos / 2;
+        } else {
+            rttVariation += (Math.abs(smoothedRtt - rttNanos) - rttVariation) / 4;
+            smoothedRtt += (rttNanos - smoothedRtt) / 8;
+        }
+        timeout = Math.min(MAX_TIMEOUT, Math.max(MIN_TIMEOUT, smoothedRtt + 4 * rttVariation));
+    }
+
+    /**
+     * Returns how long to wait for answer to {@code attempt}-th send of a request, starting from 1.
+     */
+    public long timeout(int attempt) {
+        long backedOff = Math.min(MAX_TIMEOUT, timeout << Math.min(attempt - 1, MAX_BACKOFF_SHIFT));
+        return (long) (backedOff * ThreadLocalRandom.current().nextDouble(1 - JITTER, 1 + JITTER));
+    }
+
+    /**
+     * Returns smoothed round-trip time or {@code -1} if there were no samples.
+     */
+    public long getSmoothedRtt() {
+        return smoothedRtt;
+    }
+}
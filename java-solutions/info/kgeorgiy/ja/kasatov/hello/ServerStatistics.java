@@ -0,0 +1,62 @@
+package info.kgeorgiy.ja.kasatov.hello;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a server: received, answered and dropped datagrams, datagrams waiting for a worker,
+ * and processing latency from receive till answer is sent. Thread-safe.
+ */
+public class ServerStatistics {
+    private final LongAdder received = new LongAdder();
+    private final LongAdder answered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    void received() {
+        received.increment();
+    }
+
+    void answered(long latencyNanos) {
+        answered.increment();
+        latencies.record(latencyNanos);
+    }
+
+    void dropped() {
+        dropped.increment();
+    }
+
+    void queueEntered() {
+        queueDepth.incrementAndGet();
+    }
+
+    void queueLeft() {
+        queueDepth.decrementAndGet();
+    }
+
+    public long getReceived() {
+        return received.sum();
+    }
+
+    public long getAnswered() {
+        return answered.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    public String summary() {
+        return String.format("received: %d, answered: %d, dropped: %d, queue: %d, latency %s",
+                getReceived(), getAnswered(), getDropped(), getQueueDepth(), latencies.summary());
+    }
+}
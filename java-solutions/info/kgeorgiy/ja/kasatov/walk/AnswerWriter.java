@@ -0,0 +1,17 @@
+package info.kgeorgiy.ja.kasatov.walk;
+
+import java.io.IOException;
+
+
+/**
+ * Writes lines {@code "<hex digest> <path>"} to output file.
+ */
+interface AnswerWriter extends AutoCloseable {
+    /**
+     * @param digest digest of file, zeros are written if it is {@code null}
+     */
+    void write(byte[] digest, String path) throws IOException;
+
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,265 @@
+package info.kgeorgiy.ja.kasatov.walk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+
+/**
+ * Hashes files with {@link AsynchronousFileChannel}, keeping up to {@code queueDepth} reads in flight.
+ * <p>
+ * Every file in flight owns a slot with its digest and buffer; a file has one outstanding read,
+ * and the next read is issued from the completion handler after the buffer is digested.
+ * The walking thread only opens files and blocks when all slots are busy.
+ * Results are handed out in the order of the walk.
+ * <p>
+ * Files larger than the chunk of {@link MerkleHasher} are hashed by it as Merkle tree roots,
+ * like {@link Hasher} does, so that both give the same digests.
+ */
+public class AsyncHasher implements TreeHasher, AutoCloseable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final Set<StandardOpenOption> READ = Set.of(StandardOpenOption.READ);
+
+    private static class Slot {
+        private final Digest digest;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        private Slot(Digest digest) {
+            this.digest = digest;
+        }
+    }
+
+    private final BlockingQueue<Slot> slots;
+    private final ExecutorService completions;
+    private final HashCache cache;
+    private final MerkleHasher merkleHasher;
+    private final WalkMetrics metrics;
+    private final int window;
+
+    /**
+     * @param queueDepth   max amount of reads in flight
+     * @param threads      threads which run completion handlers and perform reads where the platform
+     *                     has no native asynchronous file I/O (e.g. Linux), so fewer than {@code queueDepth}
+     *                     threads there limit the amount of reads in flight
+     * @param cache        may be {@code null}
+     * @param merkleHasher files larger than its chunk are hashed as Merkle tree root, may be {@code null}
+     * @param metrics      queue depth is amount of files being read
+     */
+    public AsyncHasher(DigestAlgorithm algorithm, int queueDepth, int threads, HashCache cache,
+                       MerkleHasher merkleHasher, WalkMetrics metrics) {
+        slots = new ArrayBlockingQueue<>(queueDepth);
+        for (int i = 0; i < queueDepth; i++) {
+            slots.add(new Slot(algorithm.newDigest()));
+        }
+        completions = Executors.newFixedThreadPool(threads);
+        this.cache = cache;
+        this.merkleHasher = merkleHasher;
+        this.metrics = metrics;
+        window = queueDepth * 2;
+    }
+
+    @Override
+    public void hashRecursively(String pathString, BiConsumer<byte[], String> consumer) {
+        Queue<Map.Entry<String, CompletableFuture<byte[]>>> pending = new ArrayDeque<>();
+        Hasher.walkFiles(pathString,
+                file -> enqueue(pending, file.toString(), hashAsync(file), consumer),
+                failed -> enqueue(pending, failed, CompletableFuture.completedFuture(null), consumer));
+        while (!pending.isEmpty()) {
+            consumeFirst(pending, consumer);
+        }
+    }
+
+    /**
+     * Hashes files listed in {@code pathStrings} (without walking directories) with reads of
+     * different files overlapping each other.
+     */
+    public void hashFiles(Iterable<String> pathStrings, BiConsumer<byte[], String> consumer) {
+        Queue<Map.Entry<String, CompletableFuture<byte[]>>> pending = new ArrayDeque<>();
+        for (String pathString : pathStrings) {
+            CompletableFuture<byte[]> hash;
+            try {
+                hash = hashAsync(Paths.get(pathString));
+            } catch (InvalidPathException e) {
+                hash = CompletableFuture.completedFuture(null);
+            }
+            enqueue(pending, pathString, hash, consumer);
+        }
+        while (!pending.isEmpty()) {
+            consumeFirst(pending, consumer);
+        }
+    }
+
+    private void enqueue(Queue<Map.Entry<String, CompletableFuture<byte[]>>> pending, String path,
+                         CompletableFuture<byte[]> hash, BiConsumer<byte[], String> consumer) {
+        pending.add(Map.entry(path, hash));
+        if (pending.size() >= window) {
+            consumeFirst(pending, consumer);
+        }
+    }
+
+    private void consumeFirst(Queue<Map.Entry<String, CompletableFuture<byte[]>>> pending,
+                              BiConsumer<byte[], String> consumer) {
+        Map.Entry<String, CompletableFuture<byte[]>> entry = pending.remove();
+        byte[] hash;
+        try {
+            hash = entry.getValue().join();
+        } catch (CompletionException e) {
+            hash = null;
+        }
+        consumer.accept(hash, entry.getKey());
+    }
+
+    private CompletableFuture<byte[]> hashAsync(Path path) {
+        long start = System.nanoTime();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException | SecurityException e) {
+            return CompletableFuture.completedFuture(null);
+        }
+        boolean cached = cache != null && attributes.isRegularFile();
+        if (cached) {
+            byte[] hash = cache.get(path, attributes);
+            if (hash != null) {
+                metrics.fileHashed(0, System.nanoTime() - start);
+                return CompletableFuture.completedFuture(hash);
+            }
+        }
+
+        Slot slot;
+        try {
+            slot = slots.take();
+            metrics.queueEntered();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<byte[]> result;
+        if (merkleHasher != null && attributes.isRegularFile() && attributes.size() > merkleHasher.getChunkSize()) {
+            // Chunks are read by workers of Merkle hasher, the slot only bounds amount of files in flight
+            result = CompletableFuture.supplyAsync(() -> hashMerkle(path), completions);
+        } else {
+            AsynchronousFileChannel channel;
+            try {
+                channel = AsynchronousFileChannel.open(path, READ, completions);
+            } catch (IOException | UnsupportedOperationException | SecurityException e) {
+                metrics.queueLeft();
+                slots.add(slot);
+                return CompletableFuture.completedFuture(null);
+            }
+            FileRead read = new FileRead(channel, slot);
+            read.start();
+            result = read.result.whenComplete((hash, exception) -> {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // Everything is already read
+                }
+            });
+        }
+        return result.whenComplete((hash, exception) -> {
+            metrics.queueLeft();
+            slots.add(slot);
+            if (hash != null) {
+                metrics.fileHashed(attributes.size(), System.nanoTime() - start);
+                if (cached) {
+                    cache.put(path, attributes, hash);
+                }
+            }
+        });
+    }
+
+    private byte[] hashMerkle(Path path) {
+        try {
+            return merkleHasher.hash(path).root();
+        } catch (IOException | SecurityException e) {
+            return null;
+        }
+    }
+
+    // Read time is measured from issuing a read till its completion
+    private class FileRead implements CompletionHandler<Integer, Long> {
+        private final AsynchronousFileChannel channel;
+        private final Slot slot;
+        private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+        private long issued;
+
+        private FileRead(AsynchronousFileChannel channel, Slot slot) {
+            this.channel = channel;
+            this.slot = slot;
+        }
+
+        private void start() {
+            slot.digest.reset();
+            read(0);
+        }
+
+        private void read(long position) {
+            slot.buffer.clear();
+            issued = System.nanoTime();
+            try {
+                channel.read(slot.buffer, position, position, this);
+            } catch (RuntimeException e) {
+                // e.g. channel was closed
+                failed(e, position);
+            }
+        }
+
+        @Override
+        public void completed(Integer read, Long position) {
+            long completed = System.nanoTime();
+            metrics.addReadTime(completed - issued);
+            try {
+                if (read < 0) {
+                    result.complete(slot.digest.digest());
+                    return;
+                }
+                slot.buffer.flip();
+                slot.digest.update(slot.buffer);
+            } catch (RuntimeException e) {
+                // Pluggable digest failed, the exception would be lost in the channel group otherwise
+                failed(e, position);
+                return;
+            }
+            metrics.addDigestTime(System.nanoTime() - completed);
+            read(position + read);
+        }
+
+        @Override
+        public void failed(Throwable exc, Long position) {
+            slot.digest.reset();
+            result.complete(null);
+        }
+    }
+
+    @Override
+    public void close() {
+        completions.shutdownNow();
+        try {
+            if (!completions.awaitTermination(1000, TimeUnit.MILLISECONDS)) {
+                System.out.println("Asynchronous I/O threads weren't terminated");
+            }
+        } catch (InterruptedException e) {
+            System.out.println("Was interrupted while waiting for asynchronous I/O threads to terminate");
+        }
+    }
+}
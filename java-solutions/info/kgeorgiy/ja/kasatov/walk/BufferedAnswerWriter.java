@@ -0,0 +1,32 @@
+package info.kgeorgiy.ja.kasatov.walk;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HexFormat;
+
+
+class BufferedAnswerWriter implements AnswerWriter {
+    private final BufferedWriter writer;
+    private final String nullHash;
+
+    BufferedAnswerWriter(Path path, int digestLength) throws IOException {
+        writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+        nullHash = "00".repeat(digestLength);
+    }
+
+    @Override
+    public void write(byte[] digest, String path) throws IOException {
+        writer.write(digest == null ? nullHash : HexFormat.of().formatHex(digest));
+        writer.write(' ');
+        writer.write(path);
+        writer.newLine();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
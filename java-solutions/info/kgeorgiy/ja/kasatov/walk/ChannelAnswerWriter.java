@@ -0,0 +1,112 @@
+package info.kgeorgiy.ja.kasatov.walk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Encodes hex digits and UTF-8 paths directly into one large buffer
+ * and writes it to {@link FileChannel} when it is full. No objects are allocated per line.
+ * <p>
+ * Output equals the one of {@link BufferedAnswerWriter} except for paths with unpaired surrogates:
+ * they are written with {@code '?'} in place of the surrogate, while {@link BufferedAnswerWriter} fails.
+ */
+class ChannelAnswerWriter implements AnswerWriter {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    // UTF-8 takes at most 3 bytes per char (4 bytes per surrogate pair)
+    private static final int MAX_BYTES_PER_CHAR = 3;
+    private static final byte REPLACEMENT = '?';
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final int digestLength;
+
+    ChannelAnswerWriter(Path path, int digestLength) throws IOException {
+        channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.digestLength = digestLength;
+    }
+
+    @Override
+    public void write(byte[] digest, String path) throws IOException {
+        long required = 2L * digestLength + 1 + (long) MAX_BYTES_PER_CHAR * path.length() + LINE_SEPARATOR.length;
+        if (required > buffer.remaining()) {
+            flush();
+        }
+        if (required > buffer.capacity()) {
+            // Extremely long path, allocation doesn't matter here
+            putHex(digest);
+            buffer.put((byte) ' ');
+            flush();
+            writeFully(ByteBuffer.wrap(path.getBytes(StandardCharsets.UTF_8)));
+            buffer.put(LINE_SEPARATOR);
+            return;
+        }
+        putHex(digest);
+        buffer.put((byte) ' ');
+        putUtf8(path);
+        buffer.put(LINE_SEPARATOR);
+    }
+
+    private void putHex(byte[] digest) {
+        for (int i = 0; i < digestLength; i++) {
+            int b = digest == null ? 0 : digest[i];
+            buffer.put(HEX_DIGITS[(b >> 4) & 0xF]);
+            buffer.put(HEX_DIGITS[b & 0xF]);
+        }
+    }
+
+    // Unpaired surrogates are replaced like String.getBytes() does
+    private void putUtf8(String string) {
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | c >> 6));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < string.length()
+                    && Character.isLowSurrogate(string.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, string.charAt(++i));
+                buffer.put((byte) (0xF0 | codePoint >> 18));
+                buffer.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put(REPLACEMENT);
+            } else {
+                buffer.put((byte) (0xE0 | c >> 12));
+                buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    // Channel may write only a part of the bytes in one call
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package info.kgeorgiy.ja.kasatov.walk;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+
+class Crc32cDigest implements Digest {
+    private final CRC32C crc = new CRC32C();
+
+    @Override
+    public void update(byte[] input, int offset, int length) {
+        crc.update(input, offset, length);
+    }
+
+    @Override
+    public void update(ByteBuffer input) {
+        crc.update(input);
+    }
+
+    @Override
+    public byte[] digest() {
+        byte[] digest = ByteBuffer.allocate(Integer.BYTES).putInt((int) crc.getValue()).array();
+        crc.reset();
+        return digest;
+    }
+
+    @Override
+    public void reset() {
+        crc.reset();
+    }
+
+    @Override
+    public int getDigestLength() {
+        return Integer.BYTES;
+    }
+}
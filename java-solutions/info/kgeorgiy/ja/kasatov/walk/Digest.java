@@ -0,0 +1,31 @@
+package info.kgeorgiy.ja.kasatov.walk;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * Incremental hash function, analogue of {@link java.security.MessageDigest}
+ * which can be implemented without security providers.
+ * Instances aren't thread-safe.
+ */
+public interface Digest {
+    void update(byte[] input, int offset, int length);
+
+    default void update(byte[] input) {
+        update(input, 0, input.length);
+    }
+
+    /**
+     * Consumes all remaining bytes of {@code input}, position is moved to its limit.
+     */
+    void update(ByteBuffer input);
+
+    /**
+     * Completes computation and resets digest for reuse.
+     */
+    byte[] digest();
+
+    void reset();
+
+    int getDigestLength();
+}
@@ -0,0 +1,17 @@
+package info.kgeorgiy.ja.kasatov.walk;
+
+
+/**
+ * Hash algorithm which can be chosen for {@link Hasher}.
+ * <p>
+ * Algorithms besides {@link Hasher.HashAlgorithms} are looked up with {@link java.util.ServiceLoader},
+ * so implementations may be added to classpath without changing this package.
+ */
+public interface DigestAlgorithm {
+    /**
+     * Name used on command line and in {@link HashCache} files.
+     */
+    String getName();
+
+    Digest newDigest();
+}
@@ -0,0 +1,59 @@
+package info.kgeorgiy.ja.kasatov.walk;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+
+
+/**
+ * Measures throughput of {@link Hasher.HashAlgorithms} against plain {@link MessageDigest} SHA-256.
+ * Every algorithm hashes the same random data from heap and direct buffers.
+ */
+public class DigestBenchmark {
+    private static final int DATA_SIZE = 1 << 26;
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 5;
+
+    // Usage: DigestBenchmark [megabytes]
+    public static void main(String[] args) throws NoSuchAlgorithmException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) << 20 : DATA_SIZE;
+        byte[] data = new byte[size];
+        new Random(0).nextBytes(data);
+        ByteBuffer direct = ByteBuffer.allocateDirect(size).put(data).flip();
+
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        report("MessageDigest SHA-256", size, () -> {
+            for (int offset = 0; offset < data.length; offset += CHUNK_SIZE) {
+                sha256.update(data, offset, Math.min(CHUNK_SIZE, data.length - offset));
+            }
+            sha256.digest();
+        });
+        for (Hasher.HashAlgorithms algorithm : Hasher.HashAlgorithms.values()) {
+            Digest digest = algorithm.newDigest();
+            report(algorithm.getName() + " heap", size, () -> {
+                for (int offset = 0; offset < data.length; offset += CHUNK_SIZE) {
+                    digest.update(data, offset, Math.min(CHUNK_SIZE, data.length - offset));
+                }
+                digest.digest();
+            });
+            report(algorithm.getName() + " direct", size, () -> {
+                digest.update(direct.duplicate());
+                digest.digest();
+            });
+        }
+    }
+
+    private static void report(String name, int size, Runnable round) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            round.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            round.run();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-24s %10.1f MB/s%n", name, (double) size * ROUNDS / seconds / (1 << 20));
+    }
+}
@@ -0,0 +1,178 @@
+package info.kgeorgiy.ja.kasatov.walk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+
+/**
+ * Finds groups of files with equal content.
+ * <p>
+ * Files are grouped by size first. Inside a same-size group only the first and the last
+ * {@value SAMPLE_SIZE} bytes are hashed, and only files whose samples still collide get a full digest.
+ * Every same-size group goes through these stages on its own, all files are hashed on a shared pool.
+ */
+public class DuplicateFinder implements AutoCloseable {
+    private static final int SAMPLE_SIZE = 1 << 12;
+
+    private record FileInfo(Path path, long size) {
+    }
+
+    private record Hashed(Path path, byte[] digest) {
+    }
+
+    private final ExecutorService workers;
+    private final ThreadLocal<Hasher> hashers;
+    private final ThreadLocal<Digest> sampleDigests;
+    private final ThreadLocal<ByteBuffer> sampleBuffers = ThreadLocal.withInitial(() -> ByteBuffer.allocate(SAMPLE_SIZE));
+    private final Map<Long, List<FileInfo>> bySize = new HashMap<>();
+    // Overlapping roots reach the same file twice, it isn't a duplicate of itself
+    private final Set<Path> seen = new HashSet<>();
+
+    /**
+     * @param cache        used for full digests, may be {@code null}
+     * @param merkleHasher used for full digests, may be {@code null}
+     * @param metrics      receives full digests only
+     */
+    public DuplicateFinder(DigestAlgorithm algorithm, int threads, HashCache cache, MerkleHasher merkleHasher,
+                           WalkMetrics metrics) {
+        workers = Executors.newFixedThreadPool(threads);
+        hashers = ThreadLocal.withInitial(() -> new Hasher(algorithm, cache, merkleHasher, metrics));
+        sampleDigests = ThreadLocal.withInitial(algorithm::newDigest);
+    }
+
+    /**
+     * Remembers all regular files under {@code pathString}, unreachable files are skipped.
+     */
+    public void add(String pathString) {
+        Hasher.walkFiles(pathString, file -> {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (attributes.isRegularFile() && seen.add(file.toAbsolutePath().normalize())) {
+                    bySize.computeIfAbsent(attributes.size(), size -> new ArrayList<>())
+                            .add(new FileInfo(file, attributes.size()));
+                }
+            } catch (IOException | SecurityException e) {
+                // Unreadable file has no duplicates
+            }
+        }, failed -> {
+        });
+    }
+
+    /**
+     * Passes digest and path of every file which has duplicates. Files of one group are passed
+     * one after another sorted by path, groups are sorted by their first path.
+     */
+    public void findDuplicates(BiConsumer<byte[], String> consumer) {
+        List<CompletableFuture<List<List<Hashed>>>> sizeGroups = bySize.values().stream()
+                .filter(group -> group.size() > 1)
+                .map(this::processSizeGroup)
+                .toList();
+        bySize.clear();
+        seen.clear();
+
+        List<List<Hashed>> duplicates = new ArrayList<>();
+        for (CompletableFuture<List<List<Hashed>>> future : sizeGroups) {
+            duplicates.addAll(future.join());
+        }
+        duplicates.forEach(group -> group.sort(Comparator.comparing(Hashed::path)));
+        duplicates.sort(Comparator.comparing(group -> group.get(0).path()));
+        for (List<Hashed> group : duplicates) {
+            for (Hashed file : group) {
+                consumer.accept(file.digest(), file.path().toString());
+            }
+        }
+    }
+
+    private CompletableFuture<List<List<Hashed>>> processSizeGroup(List<FileInfo> group) {
+        if (group.get(0).size() <= 2L * SAMPLE_SIZE) {
+            // Samples would cover the whole file
+            return fullHashes(group.stream().map(FileInfo::path).toList());
+        }
+        return hashAll(group.stream().map(FileInfo::path).toList(), this::sampleDigest)
+                .thenCompose(samples -> {
+                    List<CompletableFuture<List<List<Hashed>>>> candidates = collisions(samples).stream()
+                            .map(collision -> fullHashes(collision.stream().map(Hashed::path).toList()))
+                            .toList();
+                    return CompletableFuture.allOf(candidates.toArray(CompletableFuture[]::new))
+                            .thenApply(ignored -> candidates.stream()
+                                    .flatMap(future -> future.join().stream())
+                                    .collect(Collectors.toList()));
+                });
+    }
+
+    private CompletableFuture<List<List<Hashed>>> fullHashes(List<Path> paths) {
+        return hashAll(paths, path -> hashers.get().calculateDigest(path))
+                .thenApply(DuplicateFinder::collisions);
+    }
+
+    private CompletableFuture<List<Hashed>> hashAll(List<Path> paths, Function<Path, byte[]> hash) {
+        List<CompletableFuture<Hashed>> futures = paths.stream()
+                .map(path -> CompletableFuture.supplyAsync(() -> new Hashed(path, hash.apply(path)), workers))
+                .toList();
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> futures.stream().map(CompletableFuture::join).toList());
+    }
+
+    // Groups files by digest, unreadable files and unique digests are dropped
+    private static List<List<Hashed>> collisions(List<Hashed> hashed) {
+        Map<ByteBuffer, List<Hashed>> byDigest = new HashMap<>();
+        for (Hashed file : hashed) {
+            if (file.digest() != null) {
+                byDigest.computeIfAbsent(ByteBuffer.wrap(file.digest()), digest -> new ArrayList<>()).add(file);
+            }
+        }
+        return byDigest.values().stream().filter(group -> group.size() > 1).toList();
+    }
+
+    private byte[] sampleDigest(Path path) {
+        Digest digest = sampleDigests.get();
+        ByteBuffer buffer = sampleBuffers.get();
+        digest.reset();
+        try (FileChannel channel = FileChannel.open(path)) {
+            long size = channel.size();
+            // File may have shrunk since it was added
+            for (long start : new long[]{0, Math.max(0, size - SAMPLE_SIZE)}) {
+                buffer.clear();
+                while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) >= 0) {
+                    // Read until sample is full
+                }
+                buffer.flip();
+                digest.update(buffer);
+            }
+            return digest.digest();
+        } catch (IOException | IllegalArgumentException | SecurityException e) {
+            digest.reset();
+            return null;
+        }
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+        try {
+            if (!workers.awaitTermination(1000, TimeUnit.MILLISECONDS)) {
+                System.out.println("Duplicate search threads weren't terminated");
+            }
+        } catch (InterruptedException e) {
+            System.out.println("Was interrupted while waiting for duplicate search threads to terminate");
+        }
+    }
+}
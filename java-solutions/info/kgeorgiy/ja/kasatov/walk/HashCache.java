@@ -0,0 +1,336 @@
+package info.kgeorgiy.ja.kasatov.walk;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * On-disk cache of file digests keyed by absolute path, size, modification time and file key.
+ * <p>
+ * File format (big-endian): magic, algorithm name (int length + UTF-8), digest length, count,
+ * {@code count} offsets of records, records sorted by unsigned UTF-8 bytes of path.
+ * Record: path length, path, size, modification time in nanoseconds, file key length,
+ * file key ({@link BasicFileAttributes#fileKey()} as UTF-8 string, e.g. device and inode), digest.
+ * The file is memory-mapped and searched in place, so opening it doesn't depend on its size.
+ * Updated entries are kept in memory and merged into a new file by {@link #save()}.
+ * <p>
+ * Lookups and updates may be done from different threads.
+ */
+public class HashCache {
+    private static final int MAGIC = 0x57484332; // "WHC2"
+    // Files of previous format with hashed file keys are replaced
+    private static final int OLD_MAGIC = 0x57484331; // "WHC1"
+    private static final int HEADER_INTS = 2;
+    private static final int RECORD_LONGS = 2;
+    // Files modified this recently may be written again within the same timestamp tick, 2 seconds is FAT resolution
+    private static final long RACY_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private record Entry(long size, long modified, byte[] fileKey, byte[] digest) {
+        private static Entry of(BasicFileAttributes attributes, byte[] digest) {
+            return new Entry(
+                    attributes.size(),
+                    attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+                    fileKey(attributes),
+                    digest
+            );
+        }
+
+        private boolean matches(BasicFileAttributes attributes) {
+            return size == attributes.size()
+                    && modified == attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS)
+                    && Arrays.equals(fileKey, fileKey(attributes));
+        }
+
+        // Whole key is stored, since different files may have equal hashes of keys
+        private static byte[] fileKey(BasicFileAttributes attributes) {
+            return String.valueOf(attributes.fileKey()).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private final Path file;
+    private final String algorithm;
+    private final int digestLength;
+    // Content of the file, null if the file is absent or was written for another algorithm
+    private final ByteBuffer mapped;
+    private final int count;
+    private final int offsetsStart;
+    private final int recordsStart;
+    // Records of the file which were hit during this run, races are harmless
+    private final boolean[] touched;
+    // New and updated entries, null digest stands for invalidated entry
+    private final Map<String, Entry> updated = new ConcurrentHashMap<>();
+
+    private HashCache(Path file, String algorithm, int digestLength, ByteBuffer mapped) {
+        this.file = file;
+        this.algorithm = algorithm;
+        this.digestLength = digestLength;
+        this.mapped = mapped;
+        if (mapped == null) {
+            count = 0;
+            offsetsStart = 0;
+        } else {
+            int nameLength = mapped.getInt(Integer.BYTES);
+            count = mapped.getInt(Integer.BYTES * (HEADER_INTS + 1) + nameLength);
+            offsetsStart = Integer.BYTES * (HEADER_INTS + 2) + nameLength;
+        }
+        recordsStart = offsetsStart + count * Integer.BYTES;
+        touched = new boolean[count];
+    }
+
+    /**
+     * Opens cache stored in {@code file}. Absent file or file written for another algorithm
+     * gives an empty cache which will overwrite it on {@link #save()}.
+     *
+     * @throws IOException if existing file can't be read or is corrupted
+     */
+    public static HashCache open(Path file, String algorithm, int digestLength) throws IOException {
+        if (Files.notExists(file)) {
+            return new HashCache(file, algorithm, digestLength, null);
+        }
+        ByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Hash cache is too large: " + file);
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (mapped.getInt(0) == OLD_MAGIC) {
+                return new HashCache(file, algorithm, digestLength, null);
+            }
+            if (mapped.getInt(0) != MAGIC) {
+                throw new IOException("Not a hash cache: " + file);
+            }
+            byte[] name = new byte[mapped.getInt(Integer.BYTES)];
+            mapped.get(Integer.BYTES * HEADER_INTS, name);
+            int fileDigestLength = mapped.getInt(Integer.BYTES * HEADER_INTS + name.length);
+            if (!algorithm.equals(new String(name, StandardCharsets.UTF_8)) || fileDigestLength != digestLength) {
+                return new HashCache(file, algorithm, digestLength, null);
+            }
+            int count = mapped.getInt(Integer.BYTES * (HEADER_INTS + 1) + name.length);
+            long recordsStart = Integer.BYTES * (HEADER_INTS + 2L + count) + name.length;
+            if (count < 0 || recordsStart > mapped.limit()) {
+                throw new IOException("Hash cache is corrupted: " + file);
+            }
+            return new HashCache(file, algorithm, digestLength, mapped);
+        } catch (IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException("Hash cache is corrupted: " + file, e);
+        }
+    }
+
+    private static String key(Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Returns stored digest of {@code path} or {@code null} if the file was changed or never hashed.
+     * Corrupted records are treated as absent and dropped on {@link #save()}.
+     */
+    public byte[] get(Path path, BasicFileAttributes attributes) {
+        String key = key(path);
+        Entry entry = updated.get(key);
+        if (entry == null) {
+            try {
+                int record = find(key.getBytes(StandardCharsets.UTF_8));
+                if (record >= 0) {
+                    touched[record] = true;
+                    entry = readEntry(recordOffset(record));
+                }
+            } catch (IndexOutOfBoundsException | NegativeArraySizeException e) {
+                invalidate(path);
+                return null;
+            }
+        }
+        return entry != null && entry.digest() != null && entry.matches(attributes) ? entry.digest() : null;
+    }
+
+    /**
+     * Stores digest of {@code path}. Files modified just now aren't stored, since they may change again
+     * without changing modification time.
+     */
+    public void put(Path path, BasicFileAttributes attributes, byte[] digest) {
+        long now = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        if (now - attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS) < RACY_NANOS) {
+            invalidate(path);
+            return;
+        }
+        updated.put(key(path), Entry.of(attributes, digest));
+    }
+
+    /**
+     * Forgets digest of {@code path}, the entry is dropped on next {@link #save()}.
+     */
+    public void invalidate(Path path) {
+        updated.put(key(path), new Entry(0, 0, null, null));
+    }
+
+    private int recordOffset(int record) {
+        return recordsStart + mapped.getInt(offsetsStart + record * Integer.BYTES);
+    }
+
+    private byte[] readPath(int offset) {
+        byte[] path = new byte[mapped.getInt(offset)];
+        mapped.get(offset + Integer.BYTES, path);
+        return path;
+    }
+
+    private Entry readEntry(int offset) {
+        int position = offset + Integer.BYTES + mapped.getInt(offset);
+        int keyPosition = position + Long.BYTES * RECORD_LONGS;
+        byte[] fileKey = new byte[mapped.getInt(keyPosition)];
+        mapped.get(keyPosition + Integer.BYTES, fileKey);
+        byte[] digest = new byte[digestLength];
+        mapped.get(keyPosition + Integer.BYTES + fileKey.length, digest);
+        return new Entry(mapped.getLong(position), mapped.getLong(position + Long.BYTES), fileKey, digest);
+    }
+
+    // Binary search over sorted records, returns number of record or -1
+    private int find(byte[] key) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compared = compareWithRecord(recordOffset(middle), key);
+            if (compared < 0) {
+                low = middle + 1;
+            } else if (compared > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private int compareWithRecord(int offset, byte[] key) {
+        int length = mapped.getInt(offset);
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int compared = Byte.compareUnsigned(mapped.get(offset + Integer.BYTES + i), key[i]);
+            if (compared != 0) {
+                return compared;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private record Record(byte[] path, Entry entry) {
+    }
+
+    /**
+     * Writes all valid entries to the cache file. Entries which were replaced or invalidated are dropped,
+     * entries which weren't hit during this run are kept only if their file still exists.
+     * The file isn't rewritten if nothing was changed or dropped.
+     */
+    public void save() throws IOException {
+        List<Record> records = new ArrayList<>();
+        boolean dropped = false;
+        for (int i = 0; i < count; i++) {
+            Record record;
+            try {
+                int offset = recordOffset(i);
+                record = new Record(readPath(offset), readEntry(offset));
+            } catch (IndexOutOfBoundsException | NegativeArraySizeException e) {
+                // Corrupted record is dropped
+                dropped = true;
+                continue;
+            }
+            String key = new String(record.path(), StandardCharsets.UTF_8);
+            if (updated.containsKey(key)) {
+                continue;
+            }
+            if (!touched[i] && notExists(key)) {
+                dropped = true;
+                continue;
+            }
+            records.add(record);
+        }
+        if (updated.isEmpty() && !dropped) {
+            return;
+        }
+        for (Map.Entry<String, Entry> entry : updated.entrySet()) {
+            if (entry.getValue().digest() != null) {
+                records.add(new Record(entry.getKey().getBytes(StandardCharsets.UTF_8), entry.getValue()));
+            }
+        }
+        records.sort(Comparator.comparing(Record::path, Arrays::compareUnsigned));
+
+        Path temporary = createTemporary();
+        try {
+            write(temporary, records);
+            try {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    // Unlike Files.createTempFile, the file gets default permissions, which the cache keeps after move
+    private Path createTemporary() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        while (true) {
+            String suffix = Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), Character.MAX_RADIX);
+            try {
+                return Files.createFile(parent.resolve(file.getFileName() + "." + suffix + ".tmp"));
+            } catch (FileAlreadyExistsException e) {
+                // Try another name
+            }
+        }
+    }
+
+    private static boolean notExists(String key) {
+        try {
+            return Files.notExists(Path.of(key));
+        } catch (InvalidPathException e) {
+            return true;
+        }
+    }
+
+    private void write(Path target, List<Record> records) throws IOException {
+        byte[] name = algorithm.getBytes(StandardCharsets.UTF_8);
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(target)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(name.length);
+            output.write(name);
+            output.writeInt(digestLength);
+            output.writeInt(records.size());
+            int offset = 0;
+            for (Record record : records) {
+                output.writeInt(offset);
+                offset += Integer.BYTES + record.path().length + Long.BYTES * RECORD_LONGS
+                        + Integer.BYTES + record.entry().fileKey().length + digestLength;
+            }
+            for (Record record : records) {
+                output.writeInt(record.path().length);
+                output.write(record.path());
+                output.writeLong(record.entry().size());
+                output.writeLong(record.entry().modified());
+                output.writeInt(record.entry().fileKey().length);
+                output.write(record.entry().fileKey());
+                output.write(record.entry().digest());
+            }
+        }
+    }
+}
@@ -1,85 +1,290 @@
 package info.kgeorgiy.ja.kasatov.walk;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.security.MessageDigest;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 
-public class Hasher {
+public class Hasher implements TreeHasher {
     private final static int HEX_IN_BYTE = 2;
+    private final static int BUFFER_SIZE = 1 << 16;
+    // Files up to this size are read with a single call
+    private final static long SMALL_FILE_SIZE = BUFFER_SIZE;
+    // Files from this size are mapped into memory
+    private final static long LARGE_FILE_SIZE = 1 << 24;
+    // Mapped region can't be larger than Integer.MAX_VALUE
+    private final static long MAPPED_REGION_SIZE = 1 << 30;
+
+    // How content of a file is delivered to Digest
+    private enum ReadStrategy {
+        READ_ALL,
+        DIRECT_BUFFER,
+        MEMORY_MAP;
+
+        private static ReadStrategy of(BasicFileAttributes attributes) {
+            if (!attributes.isRegularFile()) {
+                // Size of pipes and devices means nothing
+                return DIRECT_BUFFER;
+            } else if (attributes.size() <= SMALL_FILE_SIZE) {
+                return READ_ALL;
+            } else if (attributes.size() < LARGE_FILE_SIZE) {
+                return DIRECT_BUFFER;
+            }
+            return MEMORY_MAP;
+        }
+    }
 
     // :NOTE: enum? DONE
-    public enum HashAlgorithms {
-        SHA256("SHA-256");
+    public enum HashAlgorithms implements DigestAlgorithm {
+        SHA256("SHA-256", () -> new MessageDigestAdapter("SHA-256")),
+        SHA1("SHA-1", () -> new MessageDigestAdapter("SHA-1")),
+        MD5("MD5", () -> new MessageDigestAdapter("MD5")),
+        CRC32C("CRC32C", Crc32cDigest::new),
+        XXHASH64("XXH64", XxHash64Digest::new);
 
         private final String name;
+        private final Supplier<Digest> factory;
 
-        HashAlgorithms(String name){
+        HashAlgorithms(String name, Supplier<Digest> factory){
             this.name = name;
+            this.factory = factory;
         }
 
+        @Override
         public String getName() {
             return this.name;
         }
+
+        @Override
+        public Digest newDigest() {
+            return factory.get();
+        }
+
+        /**
+         * Finds algorithm by case-insensitive name among built-in and {@link ServiceLoader} provided ones.
+         */
+        public static DigestAlgorithm find(String name) throws NoSuchAlgorithmException {
+            for (HashAlgorithms algorithm : values()) {
+                if (algorithm.getName().equalsIgnoreCase(name)) {
+                    return algorithm;
+                }
+            }
+            for (DigestAlgorithm algorithm : ServiceLoader.load(DigestAlgorithm.class)) {
+                if (algorithm.getName().equalsIgnoreCase(name)) {
+                    return algorithm;
+                }
+            }
+            throw new NoSuchAlgorithmException("Unknown hash algorithm: " + name);
+        }
     }
 
 
-    private final MessageDigest messageDigest;
+    private final Digest digest;
     private final String nullHash;
+    private final HashCache cache;
+    private final MerkleHasher merkleHasher;
+    private final WalkMetrics metrics;
+    // Reused between files, allocated on the first mid-size file
+    private ByteBuffer directBuffer;
 
     public Hasher(String algorithm) throws NoSuchAlgorithmException {
-        messageDigest = MessageDigest.getInstance(algorithm);
-        nullHash = "0".repeat(messageDigest.getDigestLength() * HEX_IN_BYTE);
+        this(HashAlgorithms.find(algorithm), null, null, new WalkMetrics());
+    }
+
+    /**
+     * @param cache        digests of unchanged files are taken from it, may be {@code null}
+     * @param merkleHasher files larger than its chunk are hashed as Merkle tree root, may be {@code null}
+     * @param metrics      receives size, latency and read/digest time of every hashed file
+     */
+    public Hasher(DigestAlgorithm algorithm, HashCache cache, MerkleHasher merkleHasher, WalkMetrics metrics) {
+        digest = algorithm.newDigest();
+        nullHash = "0".repeat(digest.getDigestLength() * HEX_IN_BYTE);
+        this.cache = cache;
+        this.merkleHasher = merkleHasher;
+        this.metrics = metrics;
+    }
+
+    public int getDigestLength() {
+        return digest.getDigestLength();
+    }
+
+    public String getNullHash() {
+        return nullHash;
+    }
+
+    /**
+     * Returns hex representation of {@code hash} or {@link #getNullHash()} if it is {@code null}.
+     */
+    public String formatHash(byte[] hash) {
+        // JDK17
+        return hash == null ? nullHash : HexFormat.of().formatHex(hash);
     }
 
     public String calculateHash(Path path) {
-        messageDigest.reset(); // does nothing
-        try (InputStream reader = Files.newInputStream(path)) {
-            int read;
-            byte[] buffer = new byte[1 << 16];
-            while ((read = reader.read(buffer)) >= 0) {
-                messageDigest.update(buffer, 0, read);
+        return formatHash(calculateDigest(path));
+    }
+
+    /**
+     * Returns digest of file or {@code null} if it can't be read.
+     */
+    public byte[] calculateDigest(Path path) {
+        long start = System.nanoTime();
+        digest.reset(); // does nothing
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            boolean cached = cache != null && attributes.isRegularFile();
+            if (cached) {
+                byte[] hash = cache.get(path, attributes);
+                if (hash != null) {
+                    metrics.fileHashed(0, System.nanoTime() - start);
+                    return hash;
+                }
             }
 
-            // JDK17
-            return HexFormat.of().formatHex(messageDigest.digest());
+            byte[] hash;
+            if (merkleHasher != null && attributes.isRegularFile() && attributes.size() > merkleHasher.getChunkSize()) {
+                hash = merkleHasher.hash(path).root();
+            } else {
+                switch (ReadStrategy.of(attributes)) {
+                    case READ_ALL -> updateAll(path);
+                    case DIRECT_BUFFER -> updateBuffered(path);
+                    case MEMORY_MAP -> updateMapped(path);
+                }
+                hash = digest.digest();
+            }
+            if (cached) {
+                cache.put(path, attributes, hash);
+            }
+            metrics.fileHashed(attributes.size(), System.nanoTime() - start);
+            return hash;
 
         } catch (IOException | IllegalArgumentException | UnsupportedOperationException |
                  SecurityException e) {
-            return nullHash;
+            digest.reset();
+            return null;
         }
     }
 
-    public Map<String, String> hashRecursively(String pathString) {
-        try (Stream<Path> pathStream = Files.walk(Paths.get(pathString))) {
-            return pathStream
-                    .filter(f -> {
-                        try {
-                            return !Files.isDirectory(f);
-                        } catch (SecurityException e) {
-                            return false;
-                        }
-                    })
-                    .collect(Collectors.toMap(Path::toString, this::calculateHash));
+    private void updateAll(Path path) throws IOException {
+        long start = System.nanoTime();
+        byte[] content = Files.readAllBytes(path);
+        long read = System.nanoTime();
+        digest.update(content);
+        metrics.addReadTime(read - start);
+        metrics.addDigestTime(System.nanoTime() - read);
+    }
+
+    private void updateBuffered(Path path) throws IOException {
+        if (directBuffer == null) {
+            directBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        long readNanos = 0;
+        long digestNanos = 0;
+        try (SeekableByteChannel channel = Files.newByteChannel(path)) {
+            directBuffer.clear();
+            long start = System.nanoTime();
+            while (channel.read(directBuffer) >= 0) {
+                long read = System.nanoTime();
+                readNanos += read - start;
+                directBuffer.flip();
+                digest.update(directBuffer);
+                directBuffer.clear();
+                start = System.nanoTime();
+                digestNanos += start - read;
+            }
+        } finally {
+            metrics.addReadTime(readNanos);
+            metrics.addDigestTime(digestNanos);
+        }
+    }
+
+    // Reads happen inside digest as page faults, so all the time is counted as digest time
+    private void updateMapped(Path path) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path)) {
+            // Size is taken from opened channel: file could be truncated after stat
+            long size = channel.size();
+            for (long position = 0; position < size; position += MAPPED_REGION_SIZE) {
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(MAPPED_REGION_SIZE, size - position)));
+            }
+        } catch (InternalError e) {
+            // Reading a page of file truncated after mapping raises SIGBUS, which JVM reports this way
+            throw new IOException("File was truncated while being read: " + path, e);
+        } finally {
+            metrics.addDigestTime(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void hashRecursively(String pathString, BiConsumer<byte[], String> consumer) {
+        walkFiles(pathString,
+                file -> consumer.accept(calculateDigest(file), file.toString()),
+                failed -> consumer.accept(null, failed));
+    }
+
+    /**
+     * Visits files under {@code pathString} one by one, only current branch of the tree is kept in memory.
+     *
+     * @param onFile    receives every file
+     * @param onFailure receives unreachable files and directories
+     */
+    static void walkFiles(String pathString, Consumer<Path> onFile, Consumer<String> onFailure) {
+        try {
+            Files.walkFileTree(Paths.get(pathString), new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    // Links to directories aren't followed
+                    if (!attrs.isSymbolicLink() || !Files.isDirectory(file)) {
+                        onFile.accept(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    onFailure.accept(file.toString());
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                    // Files read before exception are already visited
+                    return FileVisitResult.CONTINUE;
+                }
+            });
         } catch (InvalidPathException | IOException | SecurityException e) {
             // File on 'path' is unreachable
-            return Map.of(pathString, nullHash);
+            onFailure.accept(pathString);
         }
     }
 
     public String hash(String pathString) {
+        return formatHash(digest(pathString));
+    }
+
+    /**
+     * Returns digest of file or {@code null} if it can't be read.
+     */
+    public byte[] digest(String pathString) {
         try {
             Path path = Paths.get(pathString);
-            return calculateHash(path);
+            return calculateDigest(path);
         } catch (InvalidPathException e) {
-            return  nullHash;
+            return null;
         }
     }
 }
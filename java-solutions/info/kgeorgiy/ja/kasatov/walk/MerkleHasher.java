@@ -0,0 +1,155 @@
+package info.kgeorgiy.ja.kasatov.walk;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Hashes a file as a Merkle tree: fixed-size chunks are hashed in parallel
+ * and their digests are combined pairwise into the root digest.
+ * <p>
+ * Leaves are {@code H(0x00 || chunk)}, inner nodes are {@code H(0x01 || left || right)},
+ * a node without pair is moved to the next level as is (like in RFC 6962).
+ */
+public class MerkleHasher implements AutoCloseable {
+    private static final byte[] LEAF_PREFIX = {0};
+    private static final byte[] NODE_PREFIX = {1};
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Digests of a file: {@code chunkDigests.get(i)} covers bytes from {@code i * chunkSize}.
+     */
+    public record MerkleTree(long chunkSize, List<byte[]> chunkDigests, byte[] root) {
+    }
+
+    private final long chunkSize;
+    private final ExecutorService workers;
+    private final ThreadLocal<Digest> digests;
+    private final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    public MerkleHasher(DigestAlgorithm algorithm, long chunkSize, int threads) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.chunkSize = chunkSize;
+        this.workers = Executors.newFixedThreadPool(threads);
+        this.digests = ThreadLocal.withInitial(algorithm::newDigest);
+    }
+
+    public long getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Hashes all chunks of file in parallel.
+     */
+    public MerkleTree hash(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path)) {
+            long size = channel.size();
+            long chunks = Math.max(1, (size + chunkSize - 1) / chunkSize);
+            if (chunks > Integer.MAX_VALUE) {
+                throw new IOException("Too many chunks in file: " + path);
+            }
+            List<Future<byte[]>> futures = new ArrayList<>((int) chunks);
+            for (long chunk = 0; chunk < chunks; chunk++) {
+                long position = chunk * chunkSize;
+                futures.add(workers.submit(() -> hashChunk(channel, position)));
+            }
+
+            List<byte[]> leaves = new ArrayList<>(futures.size());
+            try {
+                for (Future<byte[]> future : futures) {
+                    leaves.add(future.get());
+                }
+            } catch (InterruptedException e) {
+                futures.forEach(future -> future.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while hashing " + path);
+            } catch (ExecutionException e) {
+                futures.forEach(future -> future.cancel(true));
+                if (e.getCause() instanceof IOException cause) {
+                    throw cause;
+                }
+                throw new IOException("Can't hash chunk of " + path, e.getCause());
+            }
+            return new MerkleTree(chunkSize, List.copyOf(leaves), root(leaves));
+        }
+    }
+
+    /**
+     * Rehashes only chunk {@code index} of a file and compares it with previously computed tree.
+     *
+     * @return {@code true} if the range is unchanged
+     */
+    public boolean verifyChunk(Path path, MerkleTree tree, int index) throws IOException {
+        if (tree.chunkSize() != chunkSize) {
+            throw new IllegalArgumentException("Tree was built with another chunk size");
+        }
+        try (FileChannel channel = FileChannel.open(path)) {
+            return Arrays.equals(hashChunk(channel, index * chunkSize), tree.chunkDigests().get(index));
+        }
+    }
+
+    // Positional reads don't change state of the channel, so it's shared between workers
+    private byte[] hashChunk(FileChannel channel, long start) throws IOException {
+        Digest digest = digests.get();
+        ByteBuffer buffer = buffers.get();
+        digest.reset();
+        digest.update(LEAF_PREFIX);
+        long end = start + chunkSize;
+        for (long position = start; position < end; ) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+            buffer.flip();
+            digest.update(buffer);
+        }
+        return digest.digest();
+    }
+
+    private byte[] root(List<byte[]> leaves) {
+        Digest digest = digests.get();
+        List<byte[]> level = leaves;
+        while (level.size() > 1) {
+            List<byte[]> next = new ArrayList<>((level.size() + 1) / 2);
+            for (int i = 0; i + 1 < level.size(); i += 2) {
+                digest.update(NODE_PREFIX);
+                digest.update(level.get(i));
+                digest.update(level.get(i + 1));
+                next.add(digest.digest());
+            }
+            if (level.size() % 2 == 1) {
+                next.add(level.get(level.size() - 1));
+            }
+            level = next;
+        }
+        return level.get(0);
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+        try {
+            if (!workers.awaitTermination(1000, TimeUnit.MILLISECONDS)) {
+                System.out.println("Merkle hashing threads weren't terminated");
+            }
+        } catch (InterruptedException e) {
+            System.out.println("Was interrupted while waiting for Merkle hashing threads to terminate");
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package info.kgeorgiy.ja.kasatov.walk;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+
+class MessageDigestAdapter implements Digest {
+    private final MessageDigest messageDigest;
+
+    MessageDigestAdapter(String algorithm) {
+        try {
+            messageDigest = MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            // Only algorithms which every Java platform must support are adapted
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void update(byte[] input, int offset, int length) {
+        messageDigest.update(input, offset, length);
+    }
+
+    @Override
+    public void update(ByteBuffer input) {
+        messageDigest.update(input);
+    }
+
+    @Override
+    public byte[] digest() {
+        return messageDigest.digest();
+    }
+
+    @Override
+    public void reset() {
+        messageDigest.reset();
+    }
+
+    @Override
+    public int getDigestLength() {
+        return messageDigest.getDigestLength();
+    }
+}
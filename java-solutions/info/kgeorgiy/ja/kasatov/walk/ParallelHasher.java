@@ -0,0 +1,93 @@
+package info.kgeorgiy.ja.kasatov.walk;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+
+/**
+ * Hashes files of a directory tree on a fixed pool of workers.
+ * Every worker owns its {@link Hasher} (and so its own {@link Digest}),
+ * results are handed out in the order of the walk.
+ * Only a bounded window of files is in flight, so memory doesn't depend on amount of files.
+ */
+public class ParallelHasher implements TreeHasher, AutoCloseable {
+    // Max amount of hashed but not yet consumed files per worker
+    private static final int TASKS_PER_THREAD = 4;
+
+    private final ExecutorService workers;
+    private final ThreadLocal<Hasher> hashers;
+    private final int window;
+    private final WalkMetrics metrics;
+
+    public ParallelHasher(DigestAlgorithm algorithm, int threads) {
+        this(algorithm, threads, null, null, new WalkMetrics());
+    }
+
+    /**
+     * @param cache        shared by all workers, may be {@code null}
+     * @param merkleHasher shared by all workers, may be {@code null}
+     * @param metrics      shared by all workers, queue depth is amount of files in flight
+     */
+    public ParallelHasher(DigestAlgorithm algorithm, int threads, HashCache cache, MerkleHasher merkleHasher,
+                          WalkMetrics metrics) {
+        this.metrics = metrics;
+        hashers = ThreadLocal.withInitial(() -> new Hasher(algorithm, cache, merkleHasher, metrics));
+        workers = Executors.newFixedThreadPool(threads);
+        window = threads * TASKS_PER_THREAD;
+    }
+
+    @Override
+    public void hashRecursively(String pathString, BiConsumer<byte[], String> consumer) {
+        Queue<Map.Entry<String, Future<byte[]>>> pending = new ArrayDeque<>();
+        Hasher.walkFiles(pathString,
+                file -> enqueue(pending, file.toString(), workers.submit(() -> hashers.get().calculateDigest(file)), consumer),
+                failed -> enqueue(pending, failed, CompletableFuture.completedFuture(null), consumer));
+        while (!pending.isEmpty()) {
+            consumeFirst(pending, consumer);
+        }
+    }
+
+    private void enqueue(Queue<Map.Entry<String, Future<byte[]>>> pending, String path, Future<byte[]> hash,
+                         BiConsumer<byte[], String> consumer) {
+        pending.add(Map.entry(path, hash));
+        metrics.queueEntered();
+        if (pending.size() >= window) {
+            consumeFirst(pending, consumer);
+        }
+    }
+
+    private void consumeFirst(Queue<Map.Entry<String, Future<byte[]>>> pending, BiConsumer<byte[], String> consumer) {
+        Map.Entry<String, Future<byte[]>> entry = pending.remove();
+        metrics.queueLeft();
+        byte[] hash;
+        try {
+            hash = entry.getValue().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            hash = null;
+        } catch (ExecutionException e) {
+            hash = null;
+        }
+        consumer.accept(hash, entry.getKey());
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+        try {
+            if (!workers.awaitTermination(1000, TimeUnit.MILLISECONDS)) {
+                System.out.println("Hashing threads weren't terminated");
+            }
+        } catch (InterruptedException e) {
+            System.out.println("Was interrupted while waiting for hashing threads to terminate");
+        }
+    }
+}
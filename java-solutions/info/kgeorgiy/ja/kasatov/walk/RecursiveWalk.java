@@ -1,18 +1,24 @@
 package info.kgeorgiy.ja.kasatov.walk;
 
-import java.util.Map;
-
 
 public class RecursiveWalk {
 
+    // Usage: RecursiveWalk input output [--threads N] [--cache FILE] [--algorithm NAME]
+    //                                   [--merkle CHUNK_BYTES] [--output writer|channel] [--mode hash|dedup]
+    //                                   [--io sync|async] [--queue-depth N] [--progress SECONDS]
     public static void main(String[] args) {
-        try (TaskSolver solver = new TaskSolver(args, Hasher.HashAlgorithms.SHA256.getName())) {
+        try (TaskSolver solver = new TaskSolver(args, Hasher.HashAlgorithms.SHA256.getName(), true)) {
+            DuplicateFinder duplicateFinder = solver.getDuplicateFinder();
             for (String request : solver) {
-                Map<String, String> hashes = solver.getHasher().hashRecursively(request);
-                for (Map.Entry<String, String> entry : hashes.entrySet()) {
-                    solver.writeAnswer(String.format("%s %s", entry.getValue(), entry.getKey()));
+                if (duplicateFinder != null) {
+                    duplicateFinder.add(request);
+                } else {
+                    solver.getTreeHasher().hashRecursively(request, solver::writeAnswer);
                 }
             }
+            if (duplicateFinder != null) {
+                duplicateFinder.findDuplicates(solver::writeAnswer);
+            }
         }
     }
 }
@@ -1,61 +1,190 @@
 package info.kgeorgiy.ja.kasatov.walk;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 
 public class TaskSolver implements AutoCloseable, Iterable<String> {
+    private static final Set<String> OPTIONS = Set.of(
+            "cache", "algorithm", "merkle", "output", "io", "queue-depth", "progress");
+    // Walk hashes listed files one by one and has nothing to do with these
+    private static final Set<String> RECURSIVE_OPTIONS = Set.of("threads", "mode");
+    private static final String USAGE = "Usage: input output [--cache FILE] [--algorithm NAME] "
+            + "[--merkle CHUNK_BYTES] [--output writer|channel] [--io sync|async] "
+            + "[--queue-depth N] [--progress SECONDS]";
+    private static final String RECURSIVE_USAGE = USAGE + " [--threads N] [--mode hash|dedup]";
 
     private BufferedReader reader;
-    private BufferedWriter writer;
+    private AnswerWriter writer;
     private Hasher hasher;
+    private ParallelHasher parallelHasher;
+    private HashCache cache;
+    private MerkleHasher merkleHasher;
+    private DuplicateFinder duplicateFinder;
+    private AsyncHasher asyncHasher;
     private final TaskSolverIterator iterator;
+    private final Map<String, String> options = new HashMap<>();
+    private final WalkMetrics metrics = new WalkMetrics();
+    private boolean started;
 
     public Hasher getHasher() {
         return hasher;
     }
 
-    public void writeAnswer(String string) {
+    /**
+     * Returns multithreaded hasher if {@code --threads} was greater than 1, single-threaded one otherwise.
+     */
+    public TreeHasher getTreeHasher() {
+        if (asyncHasher != null) {
+            return asyncHasher;
+        }
+        return parallelHasher != null ? parallelHasher : hasher;
+    }
+
+    /**
+     * Returns hasher for {@code --io async} or {@code null} for ordinary blocking reads.
+     */
+    public AsyncHasher getAsyncHasher() {
+        return asyncHasher;
+    }
+
+    /**
+     * Returns finder if {@code --mode dedup} was given, {@code null} otherwise.
+     */
+    public DuplicateFinder getDuplicateFinder() {
+        return duplicateFinder;
+    }
+
+    public WalkMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Writes line {@code "<hex digest> <path>"}, zeros are written instead of {@code null} digest.
+     */
+    public void writeAnswer(byte[] digest, String path) {
+        if (digest == null) {
+            metrics.fileFailed();
+        }
         try {
-            writer.write(string);
-            writer.newLine();
+            writer.write(digest, path);
         } catch (IOException e) {
             System.out.println("Exception occurred while writing to output file: " + e);
         }
     }
 
-    TaskSolver(String[] args, String hashAlgorithm) {
+    /**
+     * @param recursive whether options of {@link RecursiveWalk} are accepted
+     */
+    TaskSolver(String[] args, String hashAlgorithm, boolean recursive) {
         iterator = new TaskSolverIterator();
 
-        if (args == null || args.length != 2 || args[0] == null || args[1] == null) {
+        // args: input output [--option value]...
+        List<String> files = parseArguments(args, recursive);
+        if (files == null || files.size() != 2) {
             System.out.println("Wrong arguments");
+            System.out.println(recursive ? RECURSIVE_USAGE : USAGE);
             return;
         }
 
+        int threads = (int) parsePositiveOption("threads", 1, Integer.MAX_VALUE);
+        // Files larger than chunk are hashed as Merkle tree, 0 means plain hashing
+        long merkleChunk = options.containsKey("merkle") ? parsePositiveOption("merkle", 0, Long.MAX_VALUE) : 0;
+        int queueDepth = (int) parsePositiveOption("queue-depth", 32, Integer.MAX_VALUE);
+        // Period of progress reports to System.err in seconds, 0 means no reports
+        long progress = options.containsKey("progress") ? parsePositiveOption("progress", 0, Long.MAX_VALUE) : 0;
+        if (threads < 0 || merkleChunk < 0 || queueDepth < 0 || progress < 0) {
+            return;
+        }
+        // 'sync' reads files with blocking calls, 'async' keeps queue-depth reads in flight
+        String io = options.getOrDefault("io", "sync");
+        if (!io.equals("sync") && !io.equals("async")) {
+            System.out.println("Unknown I/O mode: " + io);
+            return;
+        }
+        // 'hash' writes digest of every file, 'dedup' writes only groups of equal files
+        String mode = options.getOrDefault("mode", "hash");
+        if (!mode.equals("hash") && !mode.equals("dedup")) {
+            System.out.println("Unknown mode: " + mode);
+            return;
+        }
+        if (mode.equals("dedup") && io.equals("async")) {
+            System.out.println("--io async can't be used with --mode dedup, duplicates are searched with blocking reads");
+            return;
+        }
+        // 'writer' formats lines with BufferedWriter, 'channel' encodes them into large direct buffer
+        String output = options.getOrDefault("output", "writer");
+        if (!output.equals("writer") && !output.equals("channel")) {
+            System.out.println("Unknown output mode: " + output);
+            return;
+        }
+
+        // Default algorithm of the task may be replaced from command line
+        hashAlgorithm = options.getOrDefault("algorithm", hashAlgorithm);
+        DigestAlgorithm algorithm;
         try {
-            hasher = new Hasher(hashAlgorithm);
+            algorithm = Hasher.HashAlgorithms.find(hashAlgorithm);
         } catch (NoSuchAlgorithmException e) {
             System.out.println(String.format("Hash algorithm %s does not exist: ", hashAlgorithm) + e);
             return;
         }
 
+        if (options.containsKey("cache")) {
+            // Merkle roots differ from plain digests, so they are stored as another algorithm
+            String cachedAlgorithm = merkleChunk > 0
+                    ? algorithm.getName() + "/merkle-" + merkleChunk
+                    : algorithm.getName();
+            try {
+                cache = HashCache.open(Paths.get(options.get("cache")), cachedAlgorithm,
+                        algorithm.newDigest().getDigestLength());
+            } catch (InvalidPathException e) {
+                System.out.println("Can't parse cache file path: " + e);
+                return;
+            } catch (IOException e) {
+                System.out.println("Can't open cache file: " + e);
+                return;
+            } catch (SecurityException e) {
+                System.out.println("Has no rights to open cache file: " + e);
+                return;
+            }
+        }
+
+        if (merkleChunk > 0) {
+            merkleHasher = new MerkleHasher(algorithm, merkleChunk, Runtime.getRuntime().availableProcessors());
+        }
+        hasher = new Hasher(algorithm, cache, merkleHasher, metrics);
+        if (mode.equals("dedup")) {
+            duplicateFinder = new DuplicateFinder(algorithm, threads, cache, merkleHasher, metrics);
+        } else if (io.equals("async")) {
+            // JDK performs "asynchronous" file reads as blocking reads in the pool on Linux,
+            // so without --threads the pool keeps every read of the queue in flight
+            int ioThreads = options.containsKey("threads") ? threads : queueDepth;
+            asyncHasher = new AsyncHasher(algorithm, queueDepth, ioThreads, cache, merkleHasher, metrics);
+        } else if (threads > 1) {
+            parallelHasher = new ParallelHasher(algorithm, threads, cache, merkleHasher, metrics);
+        }
+
         // :NOTE: большая вложенность DONE
 
         Path inPath, outPath;
         try {
-            inPath = Paths.get(args[0]);
+            inPath = Paths.get(files.get(0));
         } catch (InvalidPathException e) {
             System.out.println("Can't parse input file path: " + e);
             return;
         }
         try {
-            outPath = Paths.get(args[1]);
+            outPath = Paths.get(files.get(1));
         } catch (InvalidPathException e) {
             System.out.println("Can't parse output file path: " + e);
             return;
@@ -92,7 +221,9 @@ public class TaskSolver implements AutoCloseable, Iterable<String> {
             System.out.println("Has no rights to open input file: " + e);
         }
         try {
-            writer = Files.newBufferedWriter(outPath, StandardCharsets.UTF_8);
+            writer = output.equals("channel")
+                    ? new ChannelAnswerWriter(outPath, hasher.getDigestLength())
+                    : new BufferedAnswerWriter(outPath, hasher.getDigestLength());
             writerFlag = true;
         } catch (IOException e) {
             System.out.println("Can't open output file: " + e);
@@ -103,11 +234,96 @@ public class TaskSolver implements AutoCloseable, Iterable<String> {
             return;
         }
 
+        if (progress > 0) {
+            metrics.startReporting(progress);
+        }
+        started = true;
         iterator.start(); // OK
     }
 
+    // Returns value of option in [1, max] or -1 if it is incorrect
+    private long parsePositiveOption(String name, long defaultValue, long max) {
+        if (!options.containsKey(name)) {
+            return defaultValue;
+        }
+        long value;
+        try {
+            value = Long.parseLong(options.get(name));
+        } catch (NumberFormatException e) {
+            System.out.println(String.format("Can't parse value of --%s: ", name) + e);
+            return -1;
+        }
+        if (value < 1 || value > max) {
+            System.out.println(String.format("Value of --%s must be in [1, %d]", name, max));
+            return -1;
+        }
+        return value;
+    }
+
+    // Splits arguments into positional ones and '--name value' options, returns null on error
+    private List<String> parseArguments(String[] args, boolean recursive) {
+        if (args == null) {
+            return null;
+        }
+        List<String> positional = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] == null) {
+                return null;
+            }
+            if (args[i].startsWith("--")) {
+                if (i + 1 >= args.length || args[i + 1] == null) {
+                    return null;
+                }
+                String name = args[i].substring(2);
+                if (!recursive && RECURSIVE_OPTIONS.contains(name)) {
+                    System.out.println("Option " + args[i] + " is supported only by RecursiveWalk");
+                    return null;
+                }
+                if (!OPTIONS.contains(name) && !RECURSIVE_OPTIONS.contains(name)) {
+                    System.out.println("Unknown option: " + args[i]);
+                    return null;
+                }
+                options.put(name, args[++i]);
+            } else {
+                positional.add(args[i]);
+            }
+        }
+        return positional;
+    }
+
     @Override
     public void close() {
+        if (parallelHasher != null) {
+            parallelHasher.close();
+        }
+
+        if (duplicateFinder != null) {
+            duplicateFinder.close();
+        }
+
+        if (asyncHasher != null) {
+            asyncHasher.close();
+        }
+
+        if (merkleHasher != null) {
+            merkleHasher.close();
+        }
+
+        metrics.stopReporting();
+        if (started) {
+            metrics.printSummary();
+        }
+
+        if (cache != null) {
+            try {
+                cache.save();
+            } catch (IOException e) {
+                System.out.println("Can't save cache file: " + e);
+            } catch (SecurityException e) {
+                System.out.println("Has no rights to save cache file: " + e);
+            }
+        }
+
         if (reader != null) {
             try {
                 reader.close();
@@ -0,0 +1,14 @@
+package info.kgeorgiy.ja.kasatov.walk;
+
+import java.util.function.BiConsumer;
+
+
+public interface TreeHasher {
+    /**
+     * Hashes every file under {@code pathString} without collecting results.
+     *
+     * @param consumer receives digest and path of every file in the order of walk,
+     *                 digest is {@code null} if the file can't be read
+     */
+    void hashRecursively(String pathString, BiConsumer<byte[], String> consumer);
+}
@@ -3,11 +3,17 @@ package info.kgeorgiy.ja.kasatov.walk;
 
 public class Walk {
 
+    // Usage: Walk input output [--cache FILE] [--algorithm NAME]
+    //                          [--merkle CHUNK_BYTES] [--output writer|channel]
+    //                          [--io sync|async] [--queue-depth N] [--progress SECONDS]
     public static void main(String[] args) {
-        try (TaskSolver solver = new TaskSolver(args, Hasher.HashAlgorithms.SHA256.getName())) {
-            for (String request : solver) {
-                String hash = solver.getHasher().hash(request);
-                solver.writeAnswer(String.format("%s %s", hash, request));
+        try (TaskSolver solver = new TaskSolver(args, Hasher.HashAlgorithms.SHA256.getName(), false)) {
+            if (solver.getAsyncHasher() != null) {
+                solver.getAsyncHasher().hashFiles(solver, solver::writeAnswer);
+            } else {
+                for (String request : solver) {
+                    solver.writeAnswer(solver.getHasher().digest(request), request);
+                }
             }
         }
     }
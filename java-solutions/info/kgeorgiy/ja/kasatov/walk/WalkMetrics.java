@@ -0,0 +1,171 @@
+package info.kgeorgiy.ja.kasatov.walk;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Counters of a walk: hashed and failed files, bytes read, files in flight, per-file latency
+ * and time spent in reads versus time spent in digests. All methods may be called from any thread.
+ */
+public class WalkMetrics {
+    // Bucket i holds latencies in [2^i, 2^(i+1)) nanoseconds
+    private static final int BUCKETS = Long.SIZE;
+    private static final double NANOS_IN_SECOND = 1e9;
+    private static final double BYTES_IN_MEGABYTE = 1 << 20;
+
+    private final long startNanos = System.nanoTime();
+    private final LongAdder files = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder readNanos = new LongAdder();
+    private final LongAdder digestNanos = new LongAdder();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicLongArray latencies = new AtomicLongArray(BUCKETS);
+    private ScheduledExecutorService reporter;
+
+    /**
+     * Immutable view of counters at some moment.
+     */
+    public record Snapshot(long files, long bytes, long failed, int queueDepth, long elapsedNanos,
+                           long readNanos, long digestNanos, long[] latencyBuckets) {
+        public Snapshot {
+            latencyBuckets = latencyBuckets.clone();
+        }
+
+        /**
+         * Returns copy of counts, bucket {@code i} holds latencies in [2^i, 2^(i+1)) nanoseconds.
+         */
+        @Override
+        public long[] latencyBuckets() {
+            return latencyBuckets.clone();
+        }
+
+        public double filesPerSecond() {
+            return files / seconds(elapsedNanos);
+        }
+
+        public double megabytesPerSecond() {
+            return bytes / BYTES_IN_MEGABYTE / seconds(elapsedNanos);
+        }
+
+        /**
+         * Returns upper bound of latency of {@code percentile} percent of files in nanoseconds.
+         */
+        public long latencyPercentile(double percentile) {
+            long total = 0;
+            for (long count : latencyBuckets) {
+                total += count;
+            }
+            long rank = (long) Math.ceil(total * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < latencyBuckets.length; i++) {
+                seen += latencyBuckets[i];
+                if (seen >= rank && seen > 0) {
+                    return i + 1 < Long.SIZE - 1 ? 1L << (i + 1) : Long.MAX_VALUE;
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Whether reading files took longer than digesting them.
+         */
+        public boolean ioBound() {
+            return readNanos > digestNanos;
+        }
+    }
+
+    private static double seconds(long nanos) {
+        return Math.max(nanos, 1) / NANOS_IN_SECOND;
+    }
+
+    void fileHashed(long size, long latencyNanos) {
+        files.increment();
+        bytes.add(size);
+        latencies.incrementAndGet(Math.max(0, Long.SIZE - 1 - Long.numberOfLeadingZeros(latencyNanos)));
+    }
+
+    void fileFailed() {
+        failed.increment();
+    }
+
+    void addReadTime(long nanos) {
+        readNanos.add(nanos);
+    }
+
+    void addDigestTime(long nanos) {
+        digestNanos.add(nanos);
+    }
+
+    void queueEntered() {
+        queueDepth.incrementAndGet();
+    }
+
+    void queueLeft() {
+        queueDepth.decrementAndGet();
+    }
+
+    public Snapshot snapshot() {
+        long[] buckets = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = latencies.get(i);
+        }
+        return new Snapshot(files.sum(), bytes.sum(), failed.sum(), queueDepth.get(),
+                System.nanoTime() - startNanos, readNanos.sum(), digestNanos.sum(), buckets);
+    }
+
+    /**
+     * Prints progress line to {@code System.err} every {@code periodSeconds}.
+     */
+    public synchronized void startReporting(long periodSeconds) {
+        if (reporter == null) {
+            reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "walk-metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reporter.scheduleAtFixedRate(() -> System.err.println(progress(snapshot())),
+                    periodSeconds, periodSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Stops periodic reports.
+     */
+    public synchronized void stopReporting() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+    }
+
+    /**
+     * Prints final summary, which tells whether the run looks I/O- or CPU-bound, to {@code System.err}.
+     */
+    public void printSummary() {
+        System.err.println(summary(snapshot()));
+    }
+
+    private static String progress(Snapshot snapshot) {
+        return String.format("[%.1fs] files: %d (%.1f/s), %.1f MB (%.1f MB/s), failed: %d, queue: %d, " +
+                        "latency p50/p99: %.3f/%.3f ms",
+                seconds(snapshot.elapsedNanos()),
+                snapshot.files(), snapshot.filesPerSecond(),
+                snapshot.bytes() / BYTES_IN_MEGABYTE, snapshot.megabytesPerSecond(),
+                snapshot.failed(), snapshot.queueDepth(),
+                snapshot.latencyPercentile(50) / 1e6, snapshot.latencyPercentile(99) / 1e6);
+    }
+
+    private static String summary(Snapshot snapshot) {
+        return String.format("Done: %s%nTime in reads: %.2fs, time in digests: %.2fs (summed over threads), " +
+                        "run looks %s-bound",
+                progress(snapshot),
+                snapshot.readNanos() / NANOS_IN_SECOND, snapshot.digestNanos() / NANOS_IN_SECOND,
+                snapshot.ioBound() ? "I/O" : "CPU");
+    }
+}
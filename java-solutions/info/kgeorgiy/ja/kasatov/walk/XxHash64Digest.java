@@ -0,0 +1,152 @@
+package info.kgeorgiy.ja.kasatov.walk;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+
+/**
+ * Streaming xxHash64 with seed 0, digest is the canonical (big-endian) representation.
+ */
+class XxHash64Digest implements Digest {
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+    private static final int STRIPE = 32;
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+    private long totalLength;
+    // Tail of input which doesn't fill a stripe yet
+    private final byte[] buffer = new byte[STRIPE];
+    private int buffered;
+    private final byte[] scratch = new byte[1 << 13];
+
+    XxHash64Digest() {
+        reset();
+    }
+
+    private static long round(long accumulator, long input) {
+        return Long.rotateLeft(accumulator + input * PRIME2, 31) * PRIME1;
+    }
+
+    private static long merge(long hash, long accumulator) {
+        return (hash ^ round(0, accumulator)) * PRIME1 + PRIME4;
+    }
+
+    private void stripe(long l1, long l2, long l3, long l4) {
+        v1 = round(v1, l1);
+        v2 = round(v2, l2);
+        v3 = round(v3, l3);
+        v4 = round(v4, l4);
+    }
+
+    private void stripe(byte[] input, int offset) {
+        stripe(
+                (long) LONG_LE.get(input, offset),
+                (long) LONG_LE.get(input, offset + Long.BYTES),
+                (long) LONG_LE.get(input, offset + Long.BYTES * 2),
+                (long) LONG_LE.get(input, offset + Long.BYTES * 3)
+        );
+    }
+
+    @Override
+    public void update(byte[] input, int offset, int length) {
+        totalLength += length;
+        if (buffered > 0) {
+            int taken = Math.min(length, STRIPE - buffered);
+            System.arraycopy(input, offset, buffer, buffered, taken);
+            buffered += taken;
+            offset += taken;
+            length -= taken;
+            if (buffered < STRIPE) {
+                return;
+            }
+            stripe(buffer, 0);
+            buffered = 0;
+        }
+        int end = offset + length - length % STRIPE;
+        for (; offset < end; offset += STRIPE) {
+            stripe(input, offset);
+        }
+        length %= STRIPE;
+        System.arraycopy(input, offset, buffer, 0, length);
+        buffered = length;
+    }
+
+    @Override
+    public void update(ByteBuffer input) {
+        if (input.hasArray()) {
+            update(input.array(), input.arrayOffset() + input.position(), input.remaining());
+            input.position(input.limit());
+            return;
+        }
+        // Bulk copy is much faster than reading direct buffer by longs
+        while (input.hasRemaining()) {
+            int length = Math.min(input.remaining(), scratch.length);
+            input.get(scratch, 0, length);
+            update(scratch, 0, length);
+        }
+    }
+
+    @Override
+    public byte[] digest() {
+        long hash;
+        if (totalLength >= STRIPE) {
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = merge(hash, v1);
+            hash = merge(hash, v2);
+            hash = merge(hash, v3);
+            hash = merge(hash, v4);
+        } else {
+            hash = PRIME5;
+        }
+        hash += totalLength;
+
+        int offset = 0;
+        for (; offset + Long.BYTES <= buffered; offset += Long.BYTES) {
+            hash ^= round(0, (long) LONG_LE.get(buffer, offset));
+            hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+        }
+        if (offset + Integer.BYTES <= buffered) {
+            hash ^= Integer.toUnsignedLong((int) INT_LE.get(buffer, offset)) * PRIME1;
+            hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+            offset += Integer.BYTES;
+        }
+        for (; offset < buffered; offset++) {
+            hash ^= (buffer[offset] & 0xFF) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        hash ^= hash >>> 32;
+
+        reset();
+        return ByteBuffer.allocate(Long.BYTES).putLong(hash).array();
+    }
+
+    @Override
+    public void reset() {
+        v1 = PRIME1 + PRIME2;
+        v2 = PRIME2;
+        v3 = 0;
+        v4 = -PRIME1;
+        totalLength = 0;
+        buffered = 0;
+    }
+
+    @Override
+    public int getDigestLength() {
+        return Long.BYTES;
+    }
+}
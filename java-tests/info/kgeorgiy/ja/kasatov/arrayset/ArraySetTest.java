@@ -0,0 +1,140 @@
+package info.kgeorgiy.ja.kasatov.arrayset;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Checks construction of {@link ArraySet} and its set operations against {@link TreeSet}.
+ */
+public class ArraySetTest {
+    private static final List<Comparator<Integer>> COMPARATORS = Arrays.asList(
+            null,
+            Comparator.reverseOrder(),
+            Comparator.comparingInt(value -> Math.abs(value) / 3)
+    );
+
+    @Test
+    public void construction() {
+        Random random = new Random(23);
+        for (int size : new int[]{0, 1, 2, 10, 1000}) {
+            List<Integer> unsorted = NavigableSets.randomList(random, size, size / 2 + 1);
+            for (Comparator<Integer> comparator : COMPARATORS) {
+                TreeSet<Integer> expected = NavigableSets.treeSet(unsorted, comparator);
+                NavigableSets.assertSame(expected, new ArraySet<>(unsorted, comparator), key -> key, random, 2);
+                // Sorted input, with and without duplicates
+                NavigableSets.assertSame(expected, new ArraySet<>(expected, comparator), key -> key, random, 1);
+                List<Integer> sortedWithDuplicates = new ArrayList<>(unsorted);
+                sortedWithDuplicates.sort(comparator);
+                NavigableSets.assertSame(expected, new ArraySet<>(sortedWithDuplicates, comparator), key -> key, random, 1);
+            }
+        }
+    }
+
+    @Test
+    public void keepsFirstOfEqualElements() {
+        List<String> elements = List.of("b", "A", "a", "B", "c");
+        ArraySet<String> set = new ArraySet<>(elements, String.CASE_INSENSITIVE_ORDER);
+        TreeSet<String> expected = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        expected.addAll(elements);
+        Assert.assertEquals(new ArrayList<>(expected), new ArrayList<>(set));
+        Assert.assertEquals(List.of("A", "b", "c"), new ArrayList<>(set));
+    }
+
+    @Test
+    public void doesNotModifyArgument() {
+        List<Integer> elements = new ArrayList<>(List.of(3, 1, 2, 1));
+        ArraySet<Integer> set = new ArraySet<>(elements);
+        Assert.assertEquals(List.of(3, 1, 2, 1), elements);
+        elements.set(0, 100);
+        Assert.assertEquals(List.of(1, 2, 3), new ArrayList<>(set));
+    }
+
+    @Test
+    public void rejectsNull() {
+        Assert.assertThrows(NullPointerException.class, () -> new ArraySet<>(Arrays.asList(1, null, 2)));
+        Assert.assertThrows(NullPointerException.class, () -> new ArraySet<>(Collections.singletonList((Integer) null)));
+        Assert.assertThrows(NullPointerException.class, () -> new ArraySet<>(List.of(1)).contains(null));
+    }
+
+    @Test
+    public void rejectsIncomparable() {
+        Assert.assertThrows(ClassCastException.class, () -> new ArraySet<>(List.of(new Object())));
+    }
+
+    @Test
+    public void setOperations() {
+        Random random = new Random(23);
+        for (int size : new int[]{0, 1, 10, 1000, 2 * ArraySet.INDEX_THRESHOLD}) {
+            for (Comparator<Integer> comparator : COMPARATORS) {
+                List<Integer> left = NavigableSets.randomList(random, size, size);
+                List<Integer> right = NavigableSets.randomList(random, random.nextInt(size + 1), size);
+                ArraySet<Integer> first = new ArraySet<>(left, comparator);
+                ArraySet<Integer> second = new ArraySet<>(right, comparator);
+                checkOperations(first, second, comparator, random);
+                checkOperations(second, first, comparator, random);
+                checkOperations(first, first, comparator, random);
+                checkOperations(first, new ArraySet<>(List.of(), comparator), comparator, random);
+            }
+        }
+    }
+
+    @Test
+    public void setOperationsOfSubSets() {
+        Random random = new Random(23);
+        ArraySet<Integer> first = new ArraySet<>(NavigableSets.randomList(random, 1000, 1000));
+        ArraySet<Integer> second = new ArraySet<>(NavigableSets.randomList(random, 1000, 1000));
+        for (int i = 0; i < 20; i++) {
+            int from = random.nextInt(2001) - 1000;
+            int to = from + random.nextInt(1001);
+            checkOperations(
+                    (ArraySet<Integer>) first.subSet(from, random.nextBoolean(), to, random.nextBoolean()),
+                    (ArraySet<Integer>) second.tailSet(random.nextInt(2001) - 1000, random.nextBoolean()),
+                    null, random
+            );
+        }
+    }
+
+    @Test
+    public void setOperationsWithDifferentComparators() {
+        Random random = new Random(23);
+        List<Integer> left = NavigableSets.randomList(random, 500, 300);
+        List<Integer> right = NavigableSets.randomList(random, 500, 300);
+        ArraySet<Integer> first = new ArraySet<>(left);
+        ArraySet<Integer> second = new ArraySet<>(right, Comparator.reverseOrder());
+
+        // Result is ordered by this set's comparator
+        TreeSet<Integer> union = new TreeSet<>(left);
+        union.addAll(right);
+        NavigableSets.assertSame(union, first.union(second), key -> key, random, 1);
+        TreeSet<Integer> intersection = new TreeSet<>(left);
+        intersection.retainAll(new TreeSet<>(right));
+        NavigableSets.assertSame(intersection, first.intersection(second), key -> key, random, 1);
+        TreeSet<Integer> difference = new TreeSet<>(left);
+        difference.removeAll(new TreeSet<>(right));
+        NavigableSets.assertSame(difference, first.difference(second), key -> key, random, 1);
+        Assert.assertEquals(new ArrayList<>(union.descendingSet()), new ArrayList<>(second.union(first)));
+    }
+
+    private static void checkOperations(ArraySet<Integer> first, ArraySet<Integer> second,
+                                        Comparator<Integer> comparator, Random random) {
+        NavigableSet<Integer> union = NavigableSets.treeSet(new ArrayList<>(first), comparator);
+        union.addAll(second);
+        NavigableSet<Integer> intersection = NavigableSets.treeSet(new ArrayList<>(first), comparator);
+        intersection.retainAll(second);
+        NavigableSet<Integer> difference = NavigableSets.treeSet(new ArrayList<>(first), comparator);
+        difference.removeAll(second);
+
+        NavigableSets.assertSame(union, first.union(second), key -> key, random, 1);
+        NavigableSets.assertSame(intersection, first.intersection(second), key -> key, random, 1);
+        NavigableSets.assertSame(difference, first.difference(second), key -> key, random, 1);
+    }
+}
@@ -0,0 +1,149 @@
+package info.kgeorgiy.ja.kasatov.arrayset;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Compares {@link ConcurrentArraySet} with {@link TreeSet} under random updates and checks concurrent reads.
+ */
+public class ConcurrentArraySetTest {
+    @Test
+    public void randomUpdates() {
+        Random random = new Random(25);
+        for (Comparator<Integer> comparator : List.of(Comparator.<Integer>naturalOrder(), Comparator.<Integer>reverseOrder())) {
+            for (int size : new int[]{0, 10, 1000}) {
+                List<Integer> initial = NavigableSets.randomList(random, size, size);
+                TreeSet<Integer> expected = NavigableSets.treeSet(initial, comparator);
+                ConcurrentArraySet<Integer> set = new ConcurrentArraySet<>(initial, comparator);
+                for (int i = 0; i < 2000; i++) {
+                    int key = random.nextInt(2 * size + 21) - size - 10;
+                    switch (random.nextInt(10)) {
+                        case 0 -> Assert.assertEquals(expected.pollFirst(), set.pollFirst());
+                        case 1 -> Assert.assertEquals(expected.pollLast(), set.pollLast());
+                        case 2, 3, 4, 5 -> Assert.assertEquals(expected.add(key), set.add(key));
+                        default -> Assert.assertEquals(expected.remove(key), set.remove(key));
+                    }
+                    if (i % 100 == 0) {
+                        NavigableSets.assertSame(expected, set, k -> k, random, 2);
+                    }
+                }
+                NavigableSets.assertSame(expected, set, k -> k, random, 2);
+                set.clear();
+                Assert.assertTrue(set.isEmpty());
+            }
+        }
+    }
+
+    @Test
+    public void iteratorRemove() {
+        ConcurrentArraySet<Integer> set = new ConcurrentArraySet<>(List.of(1, 2, 3, 4, 5, 6));
+        set.add(7);
+        set.remove(3);
+        for (Iterator<Integer> i = set.iterator(); i.hasNext(); ) {
+            if (i.next() % 2 == 0) {
+                i.remove();
+            }
+        }
+        Assert.assertEquals(List.of(1, 5, 7), new ArrayList<>(set));
+        Iterator<Integer> iterator = set.iterator();
+        Assert.assertThrows(IllegalStateException.class, iterator::remove);
+    }
+
+    @Test
+    public void iteratorSeesCreationTime() {
+        ConcurrentArraySet<Integer> set = new ConcurrentArraySet<>(List.of(1, 2, 3));
+        Iterator<Integer> iterator = set.iterator();
+        set.add(0);
+        set.remove(2);
+        List<Integer> seen = new ArrayList<>();
+        iterator.forEachRemaining(seen::add);
+        Assert.assertEquals(List.of(1, 2, 3), seen);
+    }
+
+    @Test
+    public void detachedSnapshots() {
+        ConcurrentArraySet<Integer> set = new ConcurrentArraySet<>(List.of(1, 2, 3, 4));
+        set.add(5);
+        ArraySet<Integer> snapshot = set.snapshot();
+        NavigableSet<Integer> head = set.headSet(10, true);
+        NavigableSet<Integer> descending = set.descendingSet();
+        set.remove(1);
+        set.add(6);
+        Assert.assertEquals(List.of(1, 2, 3, 4, 5), new ArrayList<>(snapshot));
+        Assert.assertEquals(List.of(1, 2, 3, 4, 5), new ArrayList<>(head));
+        Assert.assertThrows(UnsupportedOperationException.class, () -> head.add(7));
+        // The descending set is a view
+        Assert.assertEquals(List.of(6, 5, 4, 3, 2), new ArrayList<>(descending));
+        descending.remove(6);
+        Assert.assertFalse(set.contains(6));
+    }
+
+    @Test
+    public void concurrentReaders() throws InterruptedException {
+        // Writer touches only odd elements, readers check that even ones are always there
+        int size = 10_000;
+        List<Integer> initial = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            initial.add(2 * i);
+        }
+        ConcurrentArraySet<Integer> set = new ConcurrentArraySet<>(initial);
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            Random random = new Random(r);
+            readers.add(new Thread(() -> {
+                try {
+                    while (!stop.get()) {
+                        int even = 2 * random.nextInt(size - 1);
+                        Assert.assertTrue(set.contains(even));
+                        Assert.assertEquals(Integer.valueOf(even), set.floor(even));
+                        Assert.assertEquals(Integer.valueOf(even), set.ceiling(even));
+                        Assert.assertTrue(set.higher(even) <= even + 2);
+                        Assert.assertTrue(set.lower(even + 2) >= even);
+                        int count = 0;
+                        int previous = Integer.MIN_VALUE;
+                        for (int element : set.tailSet(2 * size - 200, true)) {
+                            Assert.assertTrue(element > previous);
+                            previous = element;
+                            count += element % 2 == 0 ? 1 : 0;
+                        }
+                        Assert.assertEquals(100, count);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+        readers.forEach(Thread::start);
+        Random random = new Random(25);
+        for (int i = 0; i < 20_000; i++) {
+            int odd = 2 * random.nextInt(size) + 1;
+            if (random.nextBoolean()) {
+                set.add(odd);
+            } else {
+                set.remove(odd);
+            }
+            if (i % 1000 == 0) {
+                set.snapshot();
+            }
+        }
+        stop.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+    }
+}
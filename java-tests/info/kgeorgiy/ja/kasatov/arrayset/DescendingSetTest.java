@@ -0,0 +1,78 @@
+package info.kgeorgiy.ja.kasatov.arrayset;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Checks descending views of array sets against descending sets of {@link TreeSet}.
+ */
+public class DescendingSetTest {
+    @Test
+    public void descendingArraySet() {
+        Random random = new Random(24);
+        for (int size : new int[]{0, 1, 10, 1000, 2 * ArraySet.INDEX_THRESHOLD}) {
+            List<Integer> elements = NavigableSets.randomList(random, size, size);
+            for (Comparator<Integer> comparator : List.of(Comparator.<Integer>naturalOrder(), Comparator.<Integer>reverseOrder())) {
+                TreeSet<Integer> expected = NavigableSets.treeSet(elements, comparator);
+                NavigableSets.assertSame(expected.descendingSet(), new ArraySet<>(elements, comparator).descendingSet(),
+                        key -> key, random, 3);
+            }
+        }
+    }
+
+    @Test
+    public void descendingPrimitiveSets() {
+        Random random = new Random(24);
+        List<Integer> elements = NavigableSets.randomList(random, 1000, 1000);
+        TreeSet<Integer> expected = new TreeSet<>(elements);
+        NavigableSets.assertSame(expected.descendingSet(), new IntArraySet(elements).descendingSet(), key -> key, random, 3);
+        List<Long> longs = elements.stream().map(Integer::longValue).toList();
+        NavigableSets.assertSame(new TreeSet<>(longs).descendingSet(), new LongArraySet(longs).descendingSet(),
+                key -> (long) key, random, 3);
+    }
+
+    @Test
+    public void descendingOfDescendingIsBase() {
+        ArraySet<Integer> set = new ArraySet<>(List.of(1, 2, 3));
+        Assert.assertSame(set, set.descendingSet().descendingSet());
+        NavigableSet<Integer> view = set.descendingSet().headSet(2, true);
+        Assert.assertEquals(List.of(3, 2), new ArrayList<>(view));
+        Assert.assertEquals(List.of(2, 3), new ArrayList<>(view.descendingSet()));
+    }
+
+    @Test
+    public void comparator() {
+        NavigableSet<Integer> natural = new ArraySet<>(List.of(1, 2)).descendingSet();
+        Assert.assertTrue(natural.comparator().compare(1, 2) > 0);
+        NavigableSet<Integer> reversed = new ArraySet<>(List.of(1, 2), Comparator.<Integer>reverseOrder()).descendingSet();
+        Assert.assertTrue(reversed.comparator().compare(1, 2) < 0);
+        Assert.assertTrue(new IntArraySet(1, 2).descendingSet().comparator().compare(1, 2) > 0);
+    }
+
+    @Test
+    public void descendingIterator() {
+        NavigableSet<Integer> set = new ArraySet<>(List.of(5, 1, 3)).descendingSet();
+        List<Integer> elements = new ArrayList<>();
+        for (Iterator<Integer> i = set.descendingIterator(); i.hasNext(); ) {
+            elements.add(i.next());
+        }
+        Assert.assertEquals(List.of(1, 3, 5), elements);
+        Assert.assertThrows(UnsupportedOperationException.class, () -> set.iterator().remove());
+    }
+
+    @Test
+    public void immutable() {
+        NavigableSet<Integer> set = new ArraySet<>(List.of(1, 2)).descendingSet();
+        Assert.assertThrows(UnsupportedOperationException.class, () -> set.add(3));
+        Assert.assertThrows(UnsupportedOperationException.class, set::pollFirst);
+        Assert.assertThrows(UnsupportedOperationException.class, set::clear);
+    }
+}
@@ -0,0 +1,87 @@
+package info.kgeorgiy.ja.kasatov.arrayset;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares {@link EytzingerIndex} with binary search, and {@link ArraySet} which uses it with {@link java.util.TreeSet}.
+ */
+public class EytzingerIndexTest {
+    @Test
+    public void boundsOfEverySize() {
+        // Every shape of the last tree level
+        for (int size = 0; size <= 70; size++) {
+            List<Integer> sorted = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                sorted.add(2 * i);
+            }
+            EytzingerIndex<Integer> index = new EytzingerIndex<>(sorted, Comparator.naturalOrder());
+            for (int key = -1; key <= 2 * size; key++) {
+                Assert.assertEquals("lowerBound " + key + " of " + size, lowerBound(sorted, key), index.lowerBound(key));
+                Assert.assertEquals("upperBound " + key + " of " + size, lowerBound(sorted, key + 1), index.upperBound(key));
+            }
+        }
+    }
+
+    @Test
+    public void boundsWithComparator() {
+        Random random = new Random(22);
+        Comparator<Integer> comparator = Comparator.reverseOrder();
+        List<Integer> sorted = NavigableSets.randomList(random, 10_000, 1 << 20).stream().distinct().sorted(comparator).toList();
+        EytzingerIndex<Integer> index = new EytzingerIndex<>(sorted, comparator);
+        for (int i = 0; i < 10_000; i++) {
+            int key = i % 2 == 0 ? sorted.get(random.nextInt(sorted.size())) : random.nextInt();
+            Assert.assertEquals(lowerBound(sorted, comparator, key), index.lowerBound(key));
+            Assert.assertEquals(upperBound(sorted, comparator, key), index.upperBound(key));
+        }
+    }
+
+    @Test
+    public void indexedArraySet() {
+        Random random = new Random(22);
+        for (int size : new int[]{ArraySet.INDEX_THRESHOLD - 1, ArraySet.INDEX_THRESHOLD, 3 * ArraySet.INDEX_THRESHOLD}) {
+            List<Integer> elements = NavigableSets.randomList(random, size, size);
+            for (Comparator<Integer> comparator : List.of(Comparator.<Integer>naturalOrder(), Comparator.<Integer>reverseOrder())) {
+                NavigableSets.assertSame(NavigableSets.treeSet(elements, comparator), new ArraySet<>(elements, comparator),
+                        key -> key, random, 3);
+            }
+        }
+    }
+
+    private static int lowerBound(List<Integer> sorted, int key) {
+        return lowerBound(sorted, Comparator.naturalOrder(), key);
+    }
+
+    private static int lowerBound(List<Integer> sorted, Comparator<Integer> comparator, int key) {
+        int low = 0;
+        int high = sorted.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (comparator.compare(sorted.get(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int upperBound(List<Integer> sorted, Comparator<Integer> comparator, int key) {
+        int low = 0;
+        int high = sorted.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (comparator.compare(sorted.get(middle), key) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,118 @@
+package info.kgeorgiy.ja.kasatov.arrayset;
+
+import org.junit.Assert;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.function.IntFunction;
+
+/**
+ * Compares navigable sets with {@link TreeSet} on random queries, recursing into their views.
+ */
+final class NavigableSets {
+    private static final int QUERIES = 50;
+    private static final int VIEWS = 3;
+
+    private NavigableSets() {
+    }
+
+    static List<Integer> randomList(Random random, int size, int bound) {
+        List<Integer> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(random.nextInt(2 * bound + 1) - bound);
+        }
+        return list;
+    }
+
+    static <T> TreeSet<T> treeSet(List<T> elements, Comparator<? super T> comparator) {
+        TreeSet<T> set = new TreeSet<>(comparator);
+        set.addAll(elements);
+        return set;
+    }
+
+    /**
+     * Checks that {@code actual} behaves like {@code expected} on keys made by {@code keys} from random ints,
+     * then does the same for their sub-sets, head sets, tail sets and descending sets up to {@code depth}.
+     */
+    static <T> void assertSame(NavigableSet<T> expected, NavigableSet<T> actual, IntFunction<T> keys,
+                               Random random, int depth) {
+        Assert.assertEquals("size", expected.size(), actual.size());
+        Assert.assertEquals("isEmpty", expected.isEmpty(), actual.isEmpty());
+        Assert.assertEquals("order", new ArrayList<>(expected), new ArrayList<>(actual));
+        List<T> descending = new ArrayList<>();
+        actual.descendingIterator().forEachRemaining(descending::add);
+        List<T> expectedDescending = new ArrayList<>();
+        expected.descendingIterator().forEachRemaining(expectedDescending::add);
+        Assert.assertEquals("descending order", expectedDescending, descending);
+        Assert.assertEquals("equals", expected, actual);
+        Assert.assertEquals("equals", actual, expected);
+        Assert.assertEquals("hashCode", expected.hashCode(), actual.hashCode());
+        if (!expected.isEmpty()) {
+            Assert.assertEquals("first", expected.first(), actual.first());
+            Assert.assertEquals("last", expected.last(), actual.last());
+        }
+
+        Comparator<? super T> comparator = comparator(expected);
+        Assert.assertEquals("comparator", Integer.signum(comparator.compare(keys.apply(1), keys.apply(2))),
+                Integer.signum(comparator(actual).compare(keys.apply(1), keys.apply(2))));
+
+        int bound = 2 * expected.size() + 4;
+        for (int i = 0; i < QUERIES; i++) {
+            T key = keys.apply(random.nextInt(2 * bound + 1) - bound);
+            if (!inRange(expected, key)) {
+                continue;
+            }
+            Assert.assertEquals("lower " + key, expected.lower(key), actual.lower(key));
+            Assert.assertEquals("floor " + key, expected.floor(key), actual.floor(key));
+            Assert.assertEquals("ceiling " + key, expected.ceiling(key), actual.ceiling(key));
+            Assert.assertEquals("higher " + key, expected.higher(key), actual.higher(key));
+            Assert.assertEquals("contains " + key, expected.contains(key), actual.contains(key));
+        }
+
+        if (depth == 0) {
+            return;
+        }
+        for (int i = 0; i < VIEWS; i++) {
+            T from = keys.apply(random.nextInt(2 * bound + 1) - bound);
+            T to = keys.apply(random.nextInt(2 * bound + 1) - bound);
+            if (comparator.compare(from, to) > 0) {
+                T swap = from;
+                from = to;
+                to = swap;
+            }
+            boolean fromInclusive = random.nextBoolean();
+            boolean toInclusive = random.nextBoolean();
+            if (!inRange(expected, from) || !inRange(expected, to)) {
+                continue;
+            }
+            assertSame(expected.subSet(from, fromInclusive, to, toInclusive),
+                    actual.subSet(from, fromInclusive, to, toInclusive), keys, random, depth - 1);
+            assertSame(expected.headSet(to, toInclusive), actual.headSet(to, toInclusive), keys, random, depth - 1);
+            assertSame(expected.tailSet(from, fromInclusive), actual.tailSet(from, fromInclusive), keys, random, depth - 1);
+        }
+        assertSame(expected.descendingSet(), actual.descendingSet(), keys, random, depth - 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Comparator<? super T> comparator(NavigableSet<T> set) {
+        return set.comparator() != null
+                ? set.comparator()
+                : (Comparator<? super T>) Comparator.naturalOrder();
+    }
+
+    // Views of TreeSet throw for keys out of their range, so such keys aren't checked
+    private static <T> boolean inRange(NavigableSet<T> expected, T key) {
+        try {
+            expected.headSet(key, true);
+            expected.tailSet(key, true);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+}
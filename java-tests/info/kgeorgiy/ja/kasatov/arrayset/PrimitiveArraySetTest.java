@@ -0,0 +1,102 @@
+package info.kgeorgiy.ja.kasatov.arrayset;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Compares {@link IntArraySet} and {@link LongArraySet} with {@link TreeSet}, including primitive methods.
+ */
+public class PrimitiveArraySetTest {
+    private static final int[] SIZES = {0, 1, 2, 10, 100, 1000};
+
+    @Test
+    public void intSetAsNavigableSet() {
+        Random random = new Random(21);
+        for (int size : SIZES) {
+            List<Integer> elements = NavigableSets.randomList(random, size, size);
+            NavigableSets.assertSame(NavigableSets.treeSet(elements, null), new IntArraySet(elements),
+                    key -> key, random, 3);
+        }
+    }
+
+    @Test
+    public void longSetAsNavigableSet() {
+        Random random = new Random(21);
+        long scale = 1_000_000_007L;
+        for (int size : SIZES) {
+            List<Long> elements = NavigableSets.randomList(random, size, size).stream()
+                    .map(value -> value * scale)
+                    .toList();
+            NavigableSets.assertSame(NavigableSets.treeSet(elements, null), new LongArraySet(elements),
+                    key -> key * scale, random, 3);
+        }
+    }
+
+    @Test
+    public void primitiveMethods() {
+        Random random = new Random(21);
+        for (int size : SIZES) {
+            List<Integer> elements = NavigableSets.randomList(random, size, size);
+            TreeSet<Integer> expected = NavigableSets.treeSet(elements, null);
+            IntArraySet set = new IntArraySet(elements.stream().mapToInt(Integer::intValue).toArray());
+            for (int key = -size - 2; key <= size + 2; key++) {
+                Assert.assertEquals(expected.contains(key), set.contains(key));
+                Assert.assertEquals(orElse(expected.lower(key)), set.lower(key, Integer.MIN_VALUE));
+                Assert.assertEquals(orElse(expected.floor(key)), set.floor(key, Integer.MIN_VALUE));
+                Assert.assertEquals(orElse(expected.ceiling(key)), set.ceiling(key, Integer.MIN_VALUE));
+                Assert.assertEquals(orElse(expected.higher(key)), set.higher(key, Integer.MIN_VALUE));
+            }
+            Assert.assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), set.toIntArray());
+            PrimitiveIterator.OfInt iterator = set.iterator();
+            for (int value : expected) {
+                Assert.assertEquals(value, iterator.nextInt());
+            }
+            Assert.assertFalse(iterator.hasNext());
+            if (expected.isEmpty()) {
+                Assert.assertThrows(NoSuchElementException.class, set::firstInt);
+            } else {
+                Assert.assertEquals((int) expected.first(), set.firstInt());
+                Assert.assertEquals((int) expected.last(), set.lastInt());
+            }
+        }
+    }
+
+    private static int orElse(Integer value) {
+        return value == null ? Integer.MIN_VALUE : value;
+    }
+
+    @Test
+    public void extremeValues() {
+        LongArraySet set = new LongArraySet(Long.MAX_VALUE, Long.MIN_VALUE, 0, Long.MAX_VALUE);
+        Assert.assertArrayEquals(new long[]{Long.MIN_VALUE, 0, Long.MAX_VALUE}, set.toLongArray());
+        Assert.assertEquals(Long.MAX_VALUE, set.higher(0, -1));
+        Assert.assertEquals(-1, set.higher(Long.MAX_VALUE, -1));
+        Assert.assertEquals(Long.MIN_VALUE, set.lower(0, -1));
+    }
+
+    @Test
+    public void equalsOtherSets() {
+        IntArraySet set = new IntArraySet(3, 1, 2, 3);
+        Assert.assertEquals(set, new IntArraySet(1, 2, 3));
+        Assert.assertEquals(set, new TreeSet<>(List.of(1, 2, 3)));
+        Assert.assertEquals(new ArraySet<>(List.of(1, 2, 3), Comparator.naturalOrder()), set);
+        Assert.assertEquals(new IntArraySet(2), set.subSet(2, true, 2, true));
+        Assert.assertEquals(new TreeSet<>(List.of(1, 2, 3)).hashCode(), set.hashCode());
+        Assert.assertNotEquals(set, new IntArraySet(1, 2));
+    }
+
+    @Test
+    public void immutable() {
+        IntArraySet set = new IntArraySet(1, 2);
+        Assert.assertThrows(UnsupportedOperationException.class, () -> set.add(3));
+        Assert.assertThrows(UnsupportedOperationException.class, () -> set.remove(1));
+        Assert.assertThrows(UnsupportedOperationException.class, set::pollFirst);
+    }
+}
@@ -0,0 +1,123 @@
+package info.kgeorgiy.ja.kasatov.hello;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs {@link HelloUDPPipelinedClient} against local servers and checks that every request is answered once.
+ */
+public class HelloUDPPipelinedClientTest {
+    private static final String PREFIX = "pipelined_";
+    private static final String ANSWER = "Hello, ";
+
+    private static int freePort() throws SocketException {
+        try (DatagramSocket socket = new DatagramSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    // Returns output of the client: sent requests and accepted answers
+    private static String run(HelloUDPPipelinedClient client, int port, int threads, int requests) {
+        PrintStream out = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+        try {
+            client.run("localhost", port, PREFIX, threads, requests);
+        } finally {
+            System.setOut(out);
+        }
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    private static void checkAnswered(HelloUDPPipelinedClient client, String output, int threads, int requests) {
+        Map<String, Integer> answers = new HashMap<>();
+        for (String line : output.split("\\R")) {
+            if (line.startsWith(ANSWER)) {
+                answers.merge(line.substring(ANSWER.length()), 1, Integer::sum);
+            }
+        }
+        for (int thread = 1; thread <= threads; thread++) {
+            for (int request = 1; request <= requests; request++) {
+                String text = PREFIX + thread + "_" + request;
+                Assert.assertEquals("answers to " + text, Integer.valueOf(1), answers.remove(text));
+            }
+        }
+        Assert.assertEquals("unexpected answers", Map.of(), answers);
+        Assert.assertEquals(threads * requests, client.getStatistics().getAnswered());
+    }
+
+    private static void check(int window, int threads, int requests) throws SocketException {
+        int port = freePort();
+        try (HelloUDPServer server = new HelloUDPServer()) {
+            server.start(port, 2);
+            HelloUDPPipelinedClient client = new HelloUDPPipelinedClient(window);
+            checkAnswered(client, run(client, port, threads, requests), threads, requests);
+            // Retransmitted requests reach server again, but their answers are accepted once
+            Assert.assertTrue(server.getStatistics().getReceived() >= threads * requests);
+        }
+    }
+
+    @Test
+    public void windowSmallerThanRequests() throws SocketException {
+        check(4, 3, 20);
+    }
+
+    @Test
+    public void windowLargerThanRequests() throws SocketException {
+        check(100, 2, 3);
+        check(1000, 1, 1);
+    }
+
+    @Test
+    public void windowOfOne() throws SocketException {
+        check(1, 2, 5);
+    }
+
+    @Test
+    public void rejectsEmptyWindow() {
+        Assert.assertThrows(IllegalArgumentException.class, () -> new HelloUDPPipelinedClient(0));
+    }
+
+    @Test
+    public void lossyServer() throws IOException, InterruptedException {
+        // Drops every third datagram and answers every fifth one twice
+        try (DatagramSocket socket = new DatagramSocket(0)) {
+            Thread server = new Thread(() -> {
+                byte[] buffer = new byte[ByteBufferPool.MAX_DATAGRAM_SIZE];
+                try {
+                    for (int received = 1; ; received++) {
+                        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                        socket.receive(packet);
+                        if (received % 3 == 0) {
+                            continue;
+                        }
+                        String request = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8);
+                        byte[] answer = (ANSWER + request).getBytes(StandardCharsets.UTF_8);
+                        for (int i = received % 5 == 0 ? 2 : 1; i > 0; i--) {
+                            socket.send(new DatagramPacket(answer, answer.length, packet.getSocketAddress()));
+                        }
+                    }
+                } catch (IOException e) {
+                    // Socket is closed
+                }
+            });
+            server.start();
+
+            HelloUDPPipelinedClient client = new HelloUDPPipelinedClient(8);
+            checkAnswered(client, run(client, socket.getLocalPort(), 3, 10), 3, 10);
+            Assert.assertTrue(client.getStatistics().getRetries() > 0);
+            socket.close();
+            server.join();
+        }
+    }
+}
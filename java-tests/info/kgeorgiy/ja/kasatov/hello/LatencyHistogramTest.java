@@ -0,0 +1,88 @@
+package info.kgeorgiy.ja.kasatov.hello;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares percentiles of {@link LatencyHistogram} with exact ones.
+ */
+public class LatencyHistogramTest {
+    // Every power of two is split into 32 buckets
+    private static final double PRECISION = 1.0 / 32;
+
+    @Test
+    public void empty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.percentile(50));
+        Assert.assertEquals(0, histogram.getMean(), 0);
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 0; value < 64; value++) {
+            histogram.record(value);
+        }
+        Assert.assertEquals(64, histogram.getCount());
+        Assert.assertEquals(31, histogram.percentile(50));
+        Assert.assertEquals(63, histogram.percentile(100));
+        Assert.assertEquals(0, histogram.percentile(0));
+        Assert.assertEquals(31.5, histogram.getMean(), 1e-9);
+        Assert.assertEquals(63, histogram.getMax());
+    }
+
+    @Test
+    public void relativeError() {
+        Random random = new Random(2024);
+        long[] values = new long[100_000];
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < values.length; i++) {
+            // Spread over many powers of two
+            values[i] = (long) Math.exp(random.nextDouble() * Math.log(1e12));
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double percentile : new double[]{1, 10, 50, 90, 99, 99.9, 100}) {
+            long exact = values[(int) Math.ceil(values.length * percentile / 100) - 1];
+            long approximate = histogram.percentile(percentile);
+            Assert.assertTrue("p" + percentile + " " + approximate + " < " + exact, approximate >= exact);
+            Assert.assertTrue("p" + percentile + " " + approximate + " >> " + exact,
+                    approximate <= exact + exact * PRECISION);
+        }
+        Assert.assertEquals(values[values.length - 1], histogram.getMax());
+        Assert.assertEquals(values[values.length - 1], histogram.percentile(100));
+    }
+
+    @Test
+    public void extremeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        Assert.assertEquals(0, histogram.percentile(50));
+        Assert.assertEquals(Long.MAX_VALUE, histogram.percentile(100));
+    }
+
+    @Test
+    public void concurrentRecords() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 1; i <= 100_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(400_000, histogram.getCount());
+        Assert.assertEquals(100_000, histogram.getMax());
+        Assert.assertEquals(50_000.5, histogram.getMean(), 1e-6);
+    }
+}
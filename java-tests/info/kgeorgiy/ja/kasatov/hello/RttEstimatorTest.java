@@ -0,0 +1,74 @@
+package info.kgeorgiy.ja.kasatov.hello;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks RFC 6298 smoothing, bounds, exponential backoff and jitter of {@link RttEstimator}.
+ */
+public class RttEstimatorTest {
+    private static final long MS = 1_000_000;
+    private static final double JITTER = 0.25;
+    private static final int ATTEMPTS = 1000;
+
+    // Timeout is jittered, so it is checked many times against the whole jitter range
+    private static void assertTimeout(RttEstimator estimator, int attempt, long expected) {
+        for (int i = 0; i < ATTEMPTS; i++) {
+            long timeout = estimator.timeout(attempt);
+            Assert.assertTrue("timeout " + timeout + " is far below " + expected, timeout >= expected * (1 - JITTER));
+            Assert.assertTrue("timeout " + timeout + " is far above " + expected, timeout <= expected * (1 + JITTER));
+        }
+    }
+
+    @Test
+    public void initial() {
+        RttEstimator estimator = new RttEstimator();
+        Assert.assertEquals(-1, estimator.getSmoothedRtt());
+        assertTimeout(estimator, 1, 100 * MS);
+    }
+
+    @Test
+    public void firstSample() {
+        RttEstimator estimator = new RttEstimator();
+        estimator.sample(10 * MS);
+        Assert.assertEquals(10 * MS, estimator.getSmoothedRtt());
+        // SRTT + 4 * RTTVAR = 10 + 4 * 5
+        assertTimeout(estimator, 1, 30 * MS);
+    }
+
+    @Test
+    public void smoothing() {
+        RttEstimator estimator = new RttEstimator();
+        estimator.sample(10 * MS);
+        estimator.sample(18 * MS);
+        // RTTVAR = 5 + (8 - 5) / 4, SRTT = 10 + 8 / 8
+        Assert.assertEquals(11 * MS, estimator.getSmoothedRtt());
+        assertTimeout(estimator, 1, 11 * MS + 4 * 5_750_000);
+    }
+
+    @Test
+    public void backoff() {
+        RttEstimator estimator = new RttEstimator();
+        estimator.sample(10 * MS);
+        assertTimeout(estimator, 2, 60 * MS);
+        assertTimeout(estimator, 3, 120 * MS);
+        assertTimeout(estimator, 7, 1920 * MS);
+        // Doubling stops at the upper bound
+        assertTimeout(estimator, 8, 2000 * MS);
+    }
+
+    @Test
+    public void bounds() {
+        RttEstimator fast = new RttEstimator();
+        for (int i = 0; i < 100; i++) {
+            fast.sample(0);
+        }
+        assertTimeout(fast, 1, 2 * MS);
+
+        RttEstimator slow = new RttEstimator();
+        slow.sample(10_000 * MS);
+        assertTimeout(slow, 1, 2000 * MS);
+        // Shift is capped, so huge attempt numbers don't overflow
+        assertTimeout(slow, Integer.MAX_VALUE, 2000 * MS);
+    }
+}
@@ -0,0 +1,101 @@
+package info.kgeorgiy.ja.kasatov.walk;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that {@link ChannelAnswerWriter} writes the same bytes as {@link BufferedAnswerWriter}.
+ */
+public class AnswerWriterTest {
+    private static final int DIGEST_LENGTH = 32;
+    // Longer than the buffer of ChannelAnswerWriter even in single-byte chars
+    private static final int LONG_PATH = 3 << 20;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private interface WriterFactory {
+        AnswerWriter open(Path path, int digestLength) throws IOException;
+    }
+
+    private byte[] write(WriterFactory factory, List<byte[]> digests, List<String> paths) throws IOException {
+        Path output = folder.newFile().toPath();
+        try (AnswerWriter writer = factory.open(output, DIGEST_LENGTH)) {
+            for (int i = 0; i < paths.size(); i++) {
+                writer.write(digests.get(i), paths.get(i));
+            }
+        }
+        return Files.readAllBytes(output);
+    }
+
+    private void check(List<String> paths) throws IOException {
+        Random random = new Random(7);
+        List<byte[]> digests = new ArrayList<>();
+        for (int i = 0; i < paths.size(); i++) {
+            byte[] digest = new byte[DIGEST_LENGTH];
+            random.nextBytes(digest);
+            digests.add(i % 5 == 0 ? null : digest);
+        }
+        byte[] expected = write(BufferedAnswerWriter::new, digests, paths);
+        Assert.assertArrayEquals(expected, write(ChannelAnswerWriter::new, digests, paths));
+    }
+
+    @Test
+    public void shortPaths() throws IOException {
+        check(List.of("a", "dir/file.txt", "файл", "目录/文件", "emoji 😀 🎉", "𐀀", ""));
+    }
+
+    @Test
+    public void manyLines() throws IOException {
+        // Lines cross the boundary of the buffer many times
+        Random random = new Random(7);
+        String[] parts = {"a", "b", "c", "я", "文", "😀", "/"};
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            StringBuilder path = new StringBuilder();
+            for (int j = random.nextInt(100); j >= 0; j--) {
+                path.append(parts[random.nextInt(parts.length)]);
+            }
+            paths.add(path.toString());
+        }
+        check(paths);
+    }
+
+    @Test
+    public void longPaths() throws IOException {
+        check(List.of(
+                "short",
+                "a".repeat(LONG_PATH),
+                "between",
+                "😀".repeat(LONG_PATH / 4) + "я".repeat(LONG_PATH / 4),
+                // Fits in the buffer only after flush
+                "x".repeat((1 << 20) / 3 - 100),
+                "short again"
+        ));
+    }
+
+    @Test
+    public void unpairedSurrogates() throws IOException {
+        List<String> paths = List.of("a\uD800b", "\uDC00", "c".repeat(LONG_PATH) + "\uD800");
+        List<byte[]> digests = new ArrayList<>();
+        paths.forEach(path -> digests.add(null));
+        // BufferedAnswerWriter can't encode them, ChannelAnswerWriter writes '?' like String.getBytes()
+        Assert.assertThrows(IOException.class, () -> write(BufferedAnswerWriter::new, digests, paths));
+        StringBuilder expected = new StringBuilder();
+        for (String path : paths) {
+            expected.append("00".repeat(DIGEST_LENGTH)).append(' ').append(path).append(System.lineSeparator());
+        }
+        Assert.assertArrayEquals(expected.toString().getBytes(StandardCharsets.UTF_8),
+                write(ChannelAnswerWriter::new, digests, paths));
+    }
+}
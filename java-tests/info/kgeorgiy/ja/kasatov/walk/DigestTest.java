@@ -0,0 +1,85 @@
+package info.kgeorgiy.ja.kasatov.walk;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * Known-answer tests of {@link XxHash64Digest} and {@link Crc32cDigest}.
+ * Every input is also fed in pieces, through heap and direct buffers.
+ */
+public class DigestTest {
+    private static final byte[] PATTERN = new byte[1000];
+
+    static {
+        for (int i = 0; i < PATTERN.length; i++) {
+            PATTERN[i] = (byte) i;
+        }
+    }
+
+    private static byte[] ascii(String string) {
+        return string.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void check(Supplier<Digest> factory, byte[] input, String expected) {
+        Digest digest = factory.get();
+
+        digest.update(input);
+        Assert.assertEquals("whole array", expected, HexFormat.of().formatHex(digest.digest()));
+        // digest() resets state, so the same instance gives the same answer again
+        digest.update(input);
+        Assert.assertEquals("after digest()", expected, HexFormat.of().formatHex(digest.digest()));
+
+        for (int split = 0; split <= input.length; split += Math.max(1, input.length / 50)) {
+            digest.update(input, 0, split);
+            digest.update(input, split, input.length - split);
+            Assert.assertEquals("split at " + split, expected, HexFormat.of().formatHex(digest.digest()));
+        }
+
+        for (int chunk : new int[]{1, 3, 8, 31, 32, 33, 100}) {
+            ByteBuffer direct = ByteBuffer.allocateDirect(input.length).put(input).flip();
+            ByteBuffer heap = ByteBuffer.allocate(input.length + 10).position(5).slice().put(input).flip();
+            for (ByteBuffer buffer : new ByteBuffer[]{direct, heap}) {
+                for (int position = 0; position < input.length; position += chunk) {
+                    ByteBuffer piece = buffer.duplicate()
+                            .position(position)
+                            .limit(Math.min(input.length, position + chunk));
+                    digest.update(piece);
+                    Assert.assertFalse("buffer is consumed", piece.hasRemaining());
+                }
+                String kind = buffer.isDirect() ? "direct" : "heap";
+                Assert.assertEquals(kind + " chunks of " + chunk, expected, HexFormat.of().formatHex(digest.digest()));
+            }
+        }
+
+        digest.update(ascii("garbage"));
+        digest.reset();
+        digest.update(input);
+        Assert.assertEquals("after reset()", expected, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    @Test
+    public void xxHash64() {
+        check(XxHash64Digest::new, new byte[0], "ef46db3751d8e999");
+        check(XxHash64Digest::new, ascii("abc"), "44bc2cf5ad770999");
+        check(XxHash64Digest::new, ascii("Nobody inspects the spammish repetition"), "fbcea83c8a378bf1");
+        check(XxHash64Digest::new, PATTERN, "6ef436b00eba4078");
+    }
+
+    @Test
+    public void crc32c() {
+        check(Crc32cDigest::new, new byte[0], "00000000");
+        check(Crc32cDigest::new, ascii("123456789"), "e3069283");
+        check(Crc32cDigest::new, PATTERN, "1a318e30");
+    }
+
+    @Test
+    public void digestLength() {
+        Assert.assertEquals(8, new XxHash64Digest().getDigestLength());
+        Assert.assertEquals(4, new Crc32cDigest().getDigestLength());
+    }
+}
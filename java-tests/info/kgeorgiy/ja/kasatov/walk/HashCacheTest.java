@@ -0,0 +1,196 @@
+package info.kgeorgiy.ja.kasatov.walk;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+/**
+ * Checks that {@link HashCache} survives reopening and forgets changed, removed and corrupted entries.
+ */
+public class HashCacheTest {
+    private static final String ALGORITHM = "TEST";
+    private static final int DIGEST_LENGTH = 4;
+    private static final long OLD = System.currentTimeMillis() - 60_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file(String name, String content) throws IOException {
+        Path file = folder.getRoot().toPath().resolve(name);
+        Files.writeString(file, content);
+        // Files modified just now aren't stored
+        Files.setLastModifiedTime(file, FileTime.fromMillis(OLD));
+        return file;
+    }
+
+    private Path cacheFile() {
+        return folder.getRoot().toPath().resolve("cache");
+    }
+
+    private HashCache open() throws IOException {
+        return HashCache.open(cacheFile(), ALGORITHM, DIGEST_LENGTH);
+    }
+
+    private static BasicFileAttributes attributes(Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class);
+    }
+
+    private static byte[] digest(int value) {
+        return new byte[]{(byte) value, 1, 2, 3};
+    }
+
+    private void store(Path... files) throws IOException {
+        HashCache cache = open();
+        for (int i = 0; i < files.length; i++) {
+            cache.put(files[i], attributes(files[i]), digest(i));
+        }
+        cache.save();
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        Path first = file("first", "a");
+        Path second = file("second", "b");
+        store(first, second);
+
+        HashCache cache = open();
+        Assert.assertArrayEquals(digest(0), cache.get(first, attributes(first)));
+        Assert.assertArrayEquals(digest(1), cache.get(second, attributes(second)));
+        Assert.assertNull(cache.get(cacheFile(), attributes(cacheFile())));
+    }
+
+    @Test
+    public void otherAlgorithmIsEmpty() throws IOException {
+        Path first = file("first", "a");
+        store(first);
+        Assert.assertNull(HashCache.open(cacheFile(), "OTHER", DIGEST_LENGTH).get(first, attributes(first)));
+        Assert.assertNull(HashCache.open(cacheFile(), ALGORITHM, DIGEST_LENGTH + 1).get(first, attributes(first)));
+    }
+
+    @Test
+    public void changedFilesMiss() throws IOException {
+        Path modified = file("modified", "a");
+        Path resized = file("resized", "a");
+        Path replaced = file("replaced", "a");
+        store(modified, resized, replaced);
+
+        Files.setLastModifiedTime(modified, FileTime.fromMillis(OLD + 1000));
+        Files.writeString(resized, "ab");
+        Files.setLastModifiedTime(resized, FileTime.fromMillis(OLD));
+        // Another file with the same path, size and modification time
+        Path other = file("other", "a");
+        Files.move(other, replaced, StandardCopyOption.REPLACE_EXISTING);
+        Assume.assumeTrue(attributes(replaced).fileKey() != null);
+
+        HashCache cache = open();
+        Assert.assertNull(cache.get(modified, attributes(modified)));
+        Assert.assertNull(cache.get(resized, attributes(resized)));
+        Assert.assertNull(cache.get(replaced, attributes(replaced)));
+    }
+
+    @Test
+    public void recentFilesAreNotStored() throws IOException {
+        Path recent = file("recent", "a");
+        Files.setLastModifiedTime(recent, FileTime.fromMillis(System.currentTimeMillis()));
+        store(recent);
+        Assert.assertNull(open().get(recent, attributes(recent)));
+    }
+
+    @Test
+    public void invalidate() throws IOException {
+        Path first = file("first", "a");
+        Path second = file("second", "b");
+        store(first, second);
+
+        HashCache cache = open();
+        cache.invalidate(first);
+        Assert.assertNull(cache.get(first, attributes(first)));
+        cache.save();
+        cache = open();
+        Assert.assertNull(cache.get(first, attributes(first)));
+        Assert.assertArrayEquals(digest(1), cache.get(second, attributes(second)));
+    }
+
+    @Test
+    public void removedFilesAreCompacted() throws IOException {
+        Path first = file("first", "a");
+        Path second = file("second", "b");
+        store(first, second);
+        long size = Files.size(cacheFile());
+
+        Files.delete(second);
+        // Nothing was updated, but the stale record is dropped
+        open().save();
+        Assert.assertTrue(Files.size(cacheFile()) < size);
+        Assert.assertArrayEquals(digest(0), open().get(first, attributes(first)));
+
+        // Nothing to drop or update, the file isn't rewritten
+        Files.setLastModifiedTime(cacheFile(), FileTime.fromMillis(OLD));
+        open().save();
+        Assert.assertEquals(FileTime.fromMillis(OLD), Files.getLastModifiedTime(cacheFile()));
+    }
+
+    @Test
+    public void truncatedRecordsAreDropped() throws IOException {
+        Path first = file("first", "a");
+        Path second = file("second", "b");
+        store(first, second);
+        try (FileChannel channel = FileChannel.open(cacheFile(), StandardOpenOption.WRITE)) {
+            // Cuts the digest of the last record
+            channel.truncate(channel.size() - 2);
+        }
+
+        HashCache cache = open();
+        Assert.assertArrayEquals(digest(0), cache.get(first, attributes(first)));
+        Assert.assertNull(cache.get(second, attributes(second)));
+        cache.save();
+
+        cache = open();
+        Assert.assertArrayEquals(digest(0), cache.get(first, attributes(first)));
+        Assert.assertNull(cache.get(second, attributes(second)));
+        cache.put(second, attributes(second), digest(5));
+        cache.save();
+        Assert.assertArrayEquals(digest(5), open().get(second, attributes(second)));
+    }
+
+    @Test
+    public void corruptedHeaderIsReported() throws IOException {
+        Files.writeString(cacheFile(), "garbage");
+        Assert.assertThrows(IOException.class, this::open);
+    }
+
+    @Test
+    public void previousFormatIsReplaced() throws IOException {
+        Path first = file("first", "a");
+        Files.write(cacheFile(), new byte[]{'W', 'H', 'C', '1', 0, 0, 0, 0});
+        HashCache cache = open();
+        Assert.assertNull(cache.get(first, attributes(first)));
+        cache.put(first, attributes(first), digest(0));
+        cache.save();
+        Assert.assertArrayEquals(digest(0), open().get(first, attributes(first)));
+    }
+
+    @Test
+    public void keepsDefaultPermissions() throws IOException {
+        Assume.assumeTrue(cacheFile().getFileSystem().supportedFileAttributeViews().contains("posix"));
+        Path probe = folder.newFile("probe").toPath();
+        Set<PosixFilePermission> expected = Files.getPosixFilePermissions(probe);
+        store(file("first", "a"));
+        Assert.assertEquals(PosixFilePermissions.toString(expected),
+                PosixFilePermissions.toString(Files.getPosixFilePermissions(cacheFile())));
+    }
+}
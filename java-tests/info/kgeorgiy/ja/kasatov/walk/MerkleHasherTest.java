@@ -0,0 +1,149 @@
+package info.kgeorgiy.ja.kasatov.walk;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares roots of {@link MerkleHasher} with a tree built directly from RFC 6962 rules:
+ * leaves are {@code SHA-256(0x00 || chunk)}, nodes are {@code SHA-256(0x01 || left || right)}.
+ */
+public class MerkleHasherTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] sha256(byte[]... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (byte[] part : parts) {
+                digest.update(part);
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static List<byte[]> leaves(byte[] content, int chunkSize) {
+        List<byte[]> leaves = new ArrayList<>();
+        for (int start = 0; start < content.length || leaves.isEmpty(); start += chunkSize) {
+            byte[] chunk = Arrays.copyOfRange(content, start, Math.min(content.length, start + chunkSize));
+            leaves.add(sha256(new byte[]{0}, chunk));
+        }
+        return leaves;
+    }
+
+    private static byte[] root(List<byte[]> level) {
+        while (level.size() > 1) {
+            List<byte[]> next = new ArrayList<>();
+            for (int i = 0; i + 1 < level.size(); i += 2) {
+                next.add(sha256(new byte[]{1}, level.get(i), level.get(i + 1)));
+            }
+            if (level.size() % 2 == 1) {
+                // Node without pair goes up as is
+                next.add(level.get(level.size() - 1));
+            }
+            level = next;
+        }
+        return level.get(0);
+    }
+
+    private Path file(byte[] content) throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, content);
+        return file;
+    }
+
+    private static byte[] random(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+    private static void check(MerkleHasher hasher, Path file, byte[] content, int chunkSize) throws IOException {
+        List<byte[]> expected = leaves(content, chunkSize);
+        MerkleHasher.MerkleTree tree = hasher.hash(file);
+        Assert.assertEquals(chunkSize, tree.chunkSize());
+        Assert.assertEquals("chunks of " + content.length, expected.size(), tree.chunkDigests().size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertArrayEquals("chunk " + i + " of " + content.length, expected.get(i), tree.chunkDigests().get(i));
+        }
+        Assert.assertArrayEquals("root of " + content.length, root(expected), tree.root());
+    }
+
+    @Test
+    public void leafAndNodePrefixes() throws IOException {
+        int chunk = 4;
+        byte[] content = {1, 2, 3, 4, 5, 6, 7, 8};
+        try (MerkleHasher hasher = new MerkleHasher(Hasher.HashAlgorithms.SHA256, chunk, 2)) {
+            MerkleHasher.MerkleTree tree = hasher.hash(file(content));
+            byte[] left = sha256(new byte[]{0, 1, 2, 3, 4});
+            byte[] right = sha256(new byte[]{0, 5, 6, 7, 8});
+            Assert.assertArrayEquals(left, tree.chunkDigests().get(0));
+            Assert.assertArrayEquals(right, tree.chunkDigests().get(1));
+            Assert.assertArrayEquals(sha256(new byte[]{1}, left, right), tree.root());
+        }
+    }
+
+    @Test
+    public void emptyFile() throws IOException {
+        try (MerkleHasher hasher = new MerkleHasher(Hasher.HashAlgorithms.SHA256, 16, 2)) {
+            MerkleHasher.MerkleTree tree = hasher.hash(file(new byte[0]));
+            // Single empty leaf, which differs from digest of empty content
+            Assert.assertEquals(1, tree.chunkDigests().size());
+            Assert.assertArrayEquals(sha256(new byte[]{0}), tree.root());
+            Assert.assertFalse(Arrays.equals(sha256(), tree.root()));
+        }
+    }
+
+    @Test
+    public void oddAndEvenLeafCounts() throws IOException {
+        int chunk = 1000;
+        try (MerkleHasher hasher = new MerkleHasher(Hasher.HashAlgorithms.SHA256, chunk, 3)) {
+            for (int chunks = 1; chunks <= 9; chunks++) {
+                for (int tail : new int[]{-1, 0, 1}) {
+                    byte[] content = random(chunks * chunk + tail);
+                    check(hasher, file(content), content, chunk);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void chunksLargerThanBuffer() throws IOException {
+        int chunk = 100_000;
+        byte[] content = random(5 * chunk + 12_345);
+        try (MerkleHasher hasher = new MerkleHasher(Hasher.HashAlgorithms.SHA256, chunk, 2)) {
+            check(hasher, file(content), content, chunk);
+        }
+    }
+
+    @Test
+    public void verifyChunk() throws IOException {
+        int chunk = 1000;
+        byte[] content = random(3 * chunk + 10);
+        Path file = file(content);
+        try (MerkleHasher hasher = new MerkleHasher(Hasher.HashAlgorithms.SHA256, chunk, 2)) {
+            MerkleHasher.MerkleTree tree = hasher.hash(file);
+            content[chunk + 5]++;
+            Files.write(file, content);
+            Assert.assertTrue(hasher.verifyChunk(file, tree, 0));
+            Assert.assertFalse(hasher.verifyChunk(file, tree, 1));
+            Assert.assertTrue(hasher.verifyChunk(file, tree, 3));
+            try (MerkleHasher other = new MerkleHasher(Hasher.HashAlgorithms.SHA256, 2 * chunk, 1)) {
+                Assert.assertThrows(IllegalArgumentException.class, () -> other.verifyChunk(file, tree, 0));
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package info.kgeorgiy.ja.kasatov.walk;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Runs {@link Walk} and {@link RecursiveWalk} with different options and compares their outputs.
+ */
+public class WalkTest {
+    private static final String CHUNK = "65536";
+    // Sizes around the Merkle chunk, with odd and even numbers of chunks
+    private static final int[] SIZES = {0, 1, 65535, 65536, 65537, 3 * 65536 + 7, 4 * 65536};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path tree() throws IOException {
+        Path root = folder.newFolder("tree").toPath();
+        Random random = new Random(9);
+        for (int i = 0; i < SIZES.length; i++) {
+            byte[] content = new byte[SIZES[i]];
+            random.nextBytes(content);
+            Path file = root.resolve(i % 2 == 0 ? "a" : "b").resolve("file" + i);
+            Files.createDirectories(file.getParent());
+            Files.write(file, content);
+            // Older files are stored in cache
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+        }
+        return root;
+    }
+
+    private List<String> run(boolean recursive, String input, String... options) throws IOException {
+        Path output = folder.getRoot().toPath().resolve("output-" + System.nanoTime());
+        List<String> args = new ArrayList<>(List.of(input, output.toString()));
+        args.addAll(List.of(options));
+        if (recursive) {
+            RecursiveWalk.main(args.toArray(String[]::new));
+        } else {
+            Walk.main(args.toArray(String[]::new));
+        }
+        Assert.assertTrue("output of " + args, Files.exists(output));
+        return Files.readAllLines(output);
+    }
+
+    private String listFiles(Path root) throws IOException {
+        Path input = folder.getRoot().toPath().resolve("files-" + System.nanoTime());
+        try (Stream<Path> files = Files.walk(root)) {
+            Files.write(input, files.filter(Files::isRegularFile).map(Path::toString).sorted().toList());
+        }
+        return input.toString();
+    }
+
+    @Test
+    public void asyncGivesSameOutput() throws IOException {
+        Path root = tree();
+        String files = listFiles(root);
+        Path dirs = folder.getRoot().toPath().resolve("dirs");
+        Files.write(dirs, List.of(root.resolve("a").toString(), root.resolve("b").toString()));
+
+        for (String[] merkle : List.of(new String[0], new String[]{"--merkle", CHUNK})) {
+            List<String> sync = run(false, files, merkle);
+            Assert.assertEquals(SIZES.length, sync.size());
+            Assert.assertEquals(sync, run(false, files, concat(merkle, "--io", "async")));
+            Assert.assertEquals(sync, run(false, files, concat(merkle, "--io", "async", "--queue-depth", "2")));
+
+            List<String> recursive = run(true, dirs.toString(), merkle);
+            Assert.assertEquals(SIZES.length, recursive.size());
+            Assert.assertEquals(recursive, run(true, dirs.toString(), concat(merkle, "--io", "async")));
+            Assert.assertEquals(recursive, run(true, dirs.toString(), concat(merkle, "--threads", "3")));
+        }
+    }
+
+    @Test
+    public void merkleRootsDifferFromPlainDigests() throws IOException {
+        String files = listFiles(tree());
+        List<String> plain = run(false, files);
+        List<String> merkle = run(false, files, "--merkle", CHUNK);
+        for (int i = 0; i < plain.size(); i++) {
+            String line = plain.get(i);
+            int size = SIZES[Integer.parseInt(line.substring(line.lastIndexOf("file") + "file".length()))];
+            // Files up to one chunk are hashed as usual
+            Assert.assertEquals(line, size <= 65536, line.equals(merkle.get(i)));
+        }
+    }
+
+    @Test
+    public void cacheIsSharedBetweenModes() throws IOException {
+        String files = listFiles(tree());
+        String cache = folder.getRoot().toPath().resolve("cache").toString();
+        for (String[] merkle : List.of(new String[0], new String[]{"--merkle", CHUNK})) {
+            List<String> expected = run(false, files, merkle);
+            // Async run fills the cache, sync run takes digests from it, and vice versa
+            Assert.assertEquals(expected, run(false, files, concat(merkle, "--io", "async", "--cache", cache)));
+            Assert.assertEquals(expected, run(false, files, concat(merkle, "--cache", cache)));
+            Assert.assertEquals(expected, run(false, files, concat(merkle, "--io", "async", "--cache", cache)));
+        }
+    }
+
+    @Test
+    public void rejectsRecursiveOptions() throws IOException {
+        String files = listFiles(tree());
+        for (String[] options : List.of(new String[]{"--mode", "dedup"}, new String[]{"--threads", "2"})) {
+            Path output = folder.getRoot().toPath().resolve("rejected");
+            Walk.main(concat(new String[]{files, output.toString()}, options));
+            Assert.assertFalse(String.join(" ", options), Files.exists(output));
+        }
+        Assert.assertEquals(SIZES.length, run(true, files, "--mode", "hash", "--threads", "2").size());
+    }
+
+    private static String[] concat(String[] first, String... second) {
+        return Stream.concat(Stream.of(first), Stream.of(second)).toArray(String[]::new);
+    }
+}